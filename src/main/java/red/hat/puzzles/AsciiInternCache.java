@@ -0,0 +1,140 @@
+package red.hat.puzzles;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded intern cache of the Strings decoded from short ASCII slices eg header, charset or method names,
+ * which would be otherwise copied into a new String, as in {@link AsciiCopy}, each time they are parsed.
+ * <p>
+ * The slice is read 8 bytes at time, to compute the hash which picks a set of {@link #WAYS} slots, whose content
+ * is compared with it: a hit doesn't allocate nor write anything.<br>
+ * Slices up to 16 bytes are fully identified by their length, first and last word, which are stored in the
+ * entries, saving to read their bytes back.<br>
+ * A miss publishes a new entry in the first slot of the set, moving the previous one to the second slot,
+ * which is evicted: racing misses can just waste some work, but never return a wrong String.
+ * <p>
+ * Bytes out of the ASCII range are decoded as Latin1.
+ */
+public final class AsciiInternCache {
+
+    private static final class Entry {
+
+        private final int length;
+        private final long first;
+        private final long last;
+        // just for slices longer than SHORT_LENGTH
+        private final byte[] bytes;
+        private final String value;
+
+        private Entry(int length, long first, long last, byte[] bytes, String value) {
+            this.length = length;
+            this.first = first;
+            this.last = last;
+            this.bytes = bytes;
+            this.value = value;
+        }
+    }
+
+    private static final int WAYS = 2;
+    private static final int SHORT_LENGTH = 2 * Long.BYTES;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * @param capacity  the max number of cached Strings, rounded up to a power of 2
+     * @param maxLength longer slices are never cached
+     */
+    public AsciiInternCache(int capacity, int maxLength) {
+        if (capacity < WAYS) {
+            throw new IllegalArgumentException("capacity must be at least " + WAYS);
+        }
+        final int tableSize = Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicReferenceArray<>(tableSize);
+        // the first slot of each set
+        this.mask = tableSize - WAYS;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The first word of the slice, padded with zeros if shorter than 8 bytes.
+     */
+    private static long firstWord(byte[] bytes, int offset, int length) {
+        if (length >= Long.BYTES) {
+            return (long) LONG.get(bytes, offset);
+        }
+        long word = 0;
+        for (int i = 0; i < length; i++) {
+            word |= (bytes[offset + i] & 0xFFL) << (i * 8);
+        }
+        return word;
+    }
+
+    /**
+     * The last word of the slice, overlapping the previous ones, or zero if shorter than 8 bytes.
+     */
+    private static long lastWord(byte[] bytes, int offset, int length) {
+        return length >= Long.BYTES ? (long) LONG.get(bytes, offset + length - Long.BYTES) : 0;
+    }
+
+    /**
+     * Unlike {@link String#hashCode()}, which has to process a byte at time, slices up to 16 bytes just cost
+     * two reads, with no loops, hence no branches depending on the length.
+     */
+    private static int hash(byte[] bytes, int offset, int length, long first, long last) {
+        long hash = (length ^ first) * MULTIPLIER;
+        for (int i = Long.BYTES; i < length - Long.BYTES; i += Long.BYTES) {
+            hash = (hash ^ (long) LONG.get(bytes, offset + i)) * MULTIPLIER;
+        }
+        hash = (hash ^ last) * MULTIPLIER;
+        return (int) (hash ^ (hash >>> 32)) ^ (int) (hash >>> 16);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String decode(byte[] bytes, int offset, int length) {
+        // the fastest way to decode Latin1, see AsciiCopy
+        return new String(bytes, 0, offset, length);
+    }
+
+    private static boolean matches(Entry entry, byte[] bytes, int offset, int length, long first, long last) {
+        if (entry == null || entry.length != length || entry.first != first || entry.last != last) {
+            return false;
+        }
+        final byte[] cached = entry.bytes;
+        return cached == null || Arrays.equals(cached, 0, length, bytes, offset, offset + length);
+    }
+
+    public String intern(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length > maxLength) {
+            return decode(bytes, offset, length);
+        }
+        final long first = firstWord(bytes, offset, length);
+        final long last = lastWord(bytes, offset, length);
+        final AtomicReferenceArray<Entry> table = this.table;
+        final int slot = hash(bytes, offset, length, first, last) & mask;
+        final Entry firstWay = table.getAcquire(slot);
+        if (matches(firstWay, bytes, offset, length, first, last)) {
+            return firstWay.value;
+        }
+        final Entry secondWay = table.getAcquire(slot + 1);
+        if (matches(secondWay, bytes, offset, length, first, last)) {
+            return secondWay.value;
+        }
+        final String value = decode(bytes, offset, length);
+        final byte[] copy = length > SHORT_LENGTH ? Arrays.copyOfRange(bytes, offset, offset + length) : null;
+        if (firstWay != null) {
+            table.setRelease(slot + 1, firstWay);
+        }
+        table.setRelease(slot, new Entry(length, first, last, copy, value));
+        return value;
+    }
+}
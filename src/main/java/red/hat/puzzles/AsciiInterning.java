@@ -0,0 +1,99 @@
+package red.hat.puzzles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding short ASCII tokens from a receive buffer, via {@link AsciiInternCache} or into a new String each time.
+ * <p>
+ * The cache can hold {@code 1024} Strings and the tokens are looked up uniformly:
+ * <ul>
+ *     <li>{@code hit}: {@code 256} distinct tokens, which always fit</li>
+ *     <li>{@code churn}: {@code 2048} distinct tokens, roughly half of the lookups miss, evicting others</li>
+ *     <li>{@code miss}: {@code 1M} distinct tokens, which (almost) never repeat within the cache lifetime</li>
+ * </ul>
+ * Run with {@code -prof gc} to verify that hits don't allocate.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class AsciiInterning {
+
+    private static final int CAPACITY = 1024;
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"hit", "churn", "miss"})
+    public String scenario;
+
+    private byte[] buffer;
+    private int[] offsets;
+    private int[] lengths;
+    private int next;
+    private AsciiInternCache cache;
+
+    @Setup
+    public void setup() {
+        final int tokens = switch (scenario) {
+            case "hit" -> CAPACITY / 4;
+            case "churn" -> CAPACITY * 2;
+            case "miss" -> 1 << 20;
+            default -> throw new IllegalArgumentException("Unknown scenario " + scenario);
+        };
+        final SplittableRandom rnd = new SplittableRandom(42);
+        // the token id is the prefix, to make them distinct
+        final int[] tokenOffsets = new int[tokens];
+        final int[] tokenLengths = new int[tokens];
+        final StringBuilder content = new StringBuilder(tokens * 16);
+        for (int i = 0; i < tokens; i++) {
+            tokenOffsets[i] = content.length();
+            content.append(Integer.toString(i, 36)).append('-');
+            final int length = rnd.nextInt(8, 17);
+            while (content.length() - tokenOffsets[i] < length) {
+                content.append((char) rnd.nextInt('a', 'z' + 1));
+            }
+            tokenLengths[i] = content.length() - tokenOffsets[i];
+        }
+        buffer = content.toString().getBytes(StandardCharsets.US_ASCII);
+        final int lookups = Math.max(LOOKUPS, tokens);
+        offsets = new int[lookups];
+        lengths = new int[lookups];
+        for (int i = 0; i < lookups; i++) {
+            // each one at least once, to not cheat on the misses
+            final int token = tokens == lookups ? i : rnd.nextInt(tokens);
+            offsets[i] = tokenOffsets[token];
+            lengths[i] = tokenLengths[token];
+        }
+        cache = new AsciiInternCache(CAPACITY, 32);
+        for (int i = 0; i < lookups; i++) {
+            final String expected = new String(buffer, offsets[i], lengths[i], StandardCharsets.US_ASCII);
+            if (!expected.equals(cache.intern(buffer, offsets[i], lengths[i]))) {
+                throw new AssertionError("Interning is broken for " + expected);
+            }
+        }
+    }
+
+    private int nextToken() {
+        final int next = this.next;
+        this.next = next + 1 == offsets.length ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String newString() {
+        final int token = nextToken();
+        return new String(buffer, 0, offsets[token], lengths[token]);
+    }
+
+    @Benchmark
+    public String intern() {
+        final int token = nextToken();
+        return cache.intern(buffer, offsets[token], lengths[token]);
+    }
+}
@@ -0,0 +1,113 @@
+package red.hat.puzzles.checks;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive map of header names to values, with linear probing over {@link AsciiString#hashCodeIgnoreCase}.
+ * <p>
+ * Headers are never removed one by one: the map is meant to be {@link #clear}ed and reused for each request,
+ * from a single thread.
+ */
+public final class AsciiHeaderMap<V> {
+
+    private AsciiString[] keys;
+    private int[] hashes;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public AsciiHeaderMap(int expectedSize) {
+        // keep the load factor below 0.5
+        final int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, expectedSize) - 1) << 2);
+        keys = new AsciiString[capacity];
+        hashes = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(AsciiString name, int hash) {
+        final AsciiString[] keys = this.keys;
+        final int[] hashes = this.hashes;
+        final int mask = this.mask;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            final AsciiString key = keys[i];
+            if (key == null) {
+                return -(i + 1);
+            }
+            if (hashes[i] == hash && key.swarContentEqualsIgnoreCase(name)) {
+                return i;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(AsciiString name) {
+        final int index = indexOf(name, name.hashCodeIgnoreCase());
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(AsciiString name) {
+        return indexOf(name, name.hashCodeIgnoreCase()) >= 0;
+    }
+
+    /**
+     * @return the previous value of {@code name}, if any
+     */
+    @SuppressWarnings("unchecked")
+    public V put(AsciiString name, V value) {
+        final int hash = name.hashCodeIgnoreCase();
+        final int index = indexOf(name, hash);
+        if (index >= 0) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        final int free = -index - 1;
+        keys[free] = name;
+        hashes[free] = hash;
+        values[free] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    private void resize() {
+        final AsciiString[] oldKeys = keys;
+        final int[] oldHashes = hashes;
+        final Object[] oldValues = values;
+        final int capacity = oldKeys.length * 2;
+        final int mask = capacity - 1;
+        final AsciiString[] keys = new AsciiString[capacity];
+        final int[] hashes = new int[capacity];
+        final Object[] values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = oldHashes[i] & mask;
+                while (keys[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                hashes[j] = oldHashes[i];
+                values[j] = oldValues[i];
+            }
+        }
+        this.keys = keys;
+        this.hashes = hashes;
+        this.values = values;
+        this.mask = mask;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package red.hat.puzzles.checks;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 
 public final class AsciiString {
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
     private final byte[] ascii;
     private final int offset;
     private final int length;
+    // lazily computed, racy but idempotent as String::hashCode
+    private int hashIgnoreCase;
 
     public AsciiString(String string) {
         this.ascii = string.getBytes(StandardCharsets.US_ASCII);
@@ -13,6 +24,83 @@ public final class AsciiString {
         this.length = ascii.length;
     }
 
+    AsciiString(byte[] ascii, int offset, int length) {
+        this.ascii = ascii;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * A view of {@code bytes[offset, offset + length)} without copying it: any change to it is visible.
+     */
+    public static AsciiString wrap(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return new AsciiString(bytes, offset, length);
+    }
+
+    /**
+     * A view of {@code length} bytes of {@code buffer} from the absolute {@code index}.
+     *
+     * @throws IllegalArgumentException if {@code buffer} is not backed by an accessible array, eg direct or read-only:
+     *                                  use {@link #copyOf(ByteBuffer, int, int)} instead
+     */
+    public static AsciiString wrap(ByteBuffer buffer, int index, int length) {
+        Objects.checkFromIndexSize(index, length, buffer.limit());
+        if (!buffer.hasArray()) {
+            throw new IllegalArgumentException("Cannot wrap a buffer without an accessible array: " + buffer);
+        }
+        return new AsciiString(buffer.array(), buffer.arrayOffset() + index, length);
+    }
+
+    /**
+     * A copy of {@code length} bytes of {@code buffer} from the absolute {@code index}, whatever the buffer kind.
+     */
+    public static AsciiString copyOf(ByteBuffer buffer, int index, int length) {
+        Objects.checkFromIndexSize(index, length, buffer.limit());
+        final byte[] copy = new byte[length];
+        buffer.get(index, copy);
+        return new AsciiString(copy, 0, length);
+    }
+
+    /**
+     * A view of {@code length} bytes of {@code segment} from {@code offset}.
+     *
+     * @throws IllegalArgumentException if {@code segment} is not a writable {@code byte[]} heap segment, eg native:
+     *                                  use {@link #copyOf(MemorySegment, long, int)} instead
+     */
+    public static AsciiString wrap(MemorySegment segment, long offset, int length) {
+        Objects.checkFromIndexSize(offset, length, segment.byteSize());
+        if (!(segment.heapBase().orElse(null) instanceof byte[] bytes)) {
+            throw new IllegalArgumentException("Cannot wrap a segment not backed by a byte[]: " + segment);
+        }
+        // the address of a heap segment is its offset within the array
+        return new AsciiString(bytes, Math.toIntExact(segment.address() + offset), length);
+    }
+
+    /**
+     * A copy of {@code length} bytes of {@code segment} from {@code offset}, whatever the segment kind.
+     */
+    public static AsciiString copyOf(MemorySegment segment, long offset, int length) {
+        Objects.checkFromIndexSize(offset, length, segment.byteSize());
+        final byte[] copy = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset, copy, 0, length);
+        return new AsciiString(copy, 0, length);
+    }
+
+    /**
+     * A copy which doesn't share the bytes anymore, to outlive the buffer they belong to.
+     */
+    public AsciiString copy() {
+        final byte[] copy = new byte[length];
+        System.arraycopy(ascii, offset, copy, 0, length);
+        return new AsciiString(copy, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(ascii, offset, length, StandardCharsets.US_ASCII);
+    }
+
     private static boolean equalsIgnoreCase(byte a, byte b) {
         return a == b || toLowerCase(a) == toLowerCase(b);
     }
@@ -65,7 +153,105 @@ public final class AsciiString {
     }
 
     private boolean misalignedEqualsIgnoreCase(AsciiString other, byte[] value, byte[] rhsValue) {
-        throw new UnsupportedOperationException("Not implemented");
+        for (int i = offset, j = other.offset, end = i + length; i < end; ++i, ++j) {
+            if (!equalsIgnoreCase(value[i], rhsValue[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #optimizedContentEqualsIgnoreCase}, but comparing 8 bytes at time, regardless the offsets.
+     */
+    public boolean swarContentEqualsIgnoreCase(AsciiString other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || other.length() != length()) {
+            return false;
+        }
+
+        final byte[] ascii = this.ascii;
+        final byte[] otherAscii = other.ascii;
+        int i = offset;
+        int j = other.offset;
+        final int end = i + length;
+        for (; i + Long.BYTES <= end; i += Long.BYTES, j += Long.BYTES) {
+            final long word = (long) LONG.get(ascii, i);
+            final long otherWord = (long) LONG.get(otherAscii, j);
+            // most of the times they're just the same
+            if (word != otherWord && toLowerCase(word) != toLowerCase(otherWord)) {
+                return false;
+            }
+        }
+        for (; i < end; ++i, ++j) {
+            if (!equalsIgnoreCase(ascii[i], otherAscii[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The range check works on the lowest 7 bits of each byte: adding {@code 0x80 - 'A'} sets the high bit iff it's
+     * {@code >= 'A'} and adding {@code 0x7F - 'Z'} iff it's {@code > 'Z'}, without carrying into the next byte.<br>
+     * Bytes with the high bit set are never upper case.
+     */
+    private static long toLowerCase(long word) {
+        final long low7Bits = word & 0x7F7F7F7F7F7F7F7FL;
+        final long upperCase = (low7Bits + 0x3F3F3F3F3F3F3F3FL) & ~(low7Bits + 0x2525252525252525L) & ~word & 0x8080808080808080L;
+        // 0x80 >>> 2 is the 0x20 which turns upper into lower case
+        return word | (upperCase >>> 2);
+    }
+
+    /**
+     * A view of {@code [start, end)}, sharing the same bytes.
+     */
+    public AsciiString subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        if (start == 0 && end == length) {
+            return this;
+        }
+        return new AsciiString(ascii, offset + start, end - start);
+    }
+
+    public byte byteAt(int index) {
+        Objects.checkIndex(index, length);
+        return ascii[offset + index];
+    }
+
+    /**
+     * Hash code which is the same for any case of the same content: it lower cases and mixes 8 bytes at time,
+     * regardless the offset.
+     */
+    public int hashCodeIgnoreCase() {
+        int hash = hashIgnoreCase;
+        if (hash == 0) {
+            hash = computeHashCodeIgnoreCase();
+            hashIgnoreCase = hash;
+        }
+        return hash;
+    }
+
+    private int computeHashCodeIgnoreCase() {
+        final byte[] ascii = this.ascii;
+        final int end = offset + length;
+        long hash = length;
+        int i = offset;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            hash = (hash + toLowerCase((long) LONG.get(ascii, i))) * 0x9E3779B97F4A7C15L;
+        }
+        if (i < end) {
+            // zeros are not upper case: the tail can be lower cased in the same way
+            long tail = 0;
+            for (int shift = 0; i < end; i++, shift += Byte.SIZE) {
+                tail |= (ascii[i] & 0xFFL) << shift;
+            }
+            hash = (hash + toLowerCase(tail)) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (hash ^ (hash >>> 32));
     }
 
     public int arrayOffset() {
@@ -0,0 +1,152 @@
+package red.hat.puzzles.checks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing the longs of an off-heap buffer, sequentially or at random (unaligned) indexes, via:
+ * <ul>
+ *     <li>{@link UnsafeBuffer}, with and without bound checks</li>
+ *     <li>a direct {@link ByteBuffer}</li>
+ *     <li>a {@link MemorySegment}</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class BufferAccess {
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final int RANDOM_READS = 1024;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private Arena arena;
+    private MemorySegment segment;
+    private ByteBuffer byteBuffer;
+    private UnsafeBuffer unsafeBuffer;
+    private int[] randomIndexes;
+
+    @Setup
+    public void init() {
+        arena = Arena.ofConfined();
+        segment = arena.allocate(size, Long.BYTES);
+        byteBuffer = segment.asByteBuffer().order(ByteOrder.nativeOrder());
+        unsafeBuffer = new UnsafeBuffer(segment);
+        final SplittableRandom rnd = new SplittableRandom(42);
+        for (int i = 0; i + Long.BYTES <= size; i += Long.BYTES) {
+            unsafeBuffer.putLong(i, rnd.nextLong());
+        }
+        randomIndexes = new int[RANDOM_READS];
+        for (int i = 0; i < RANDOM_READS; i++) {
+            randomIndexes[i] = rnd.nextInt(size - Long.BYTES + 1);
+        }
+        if (sequentialUnsafeBuffer() != sequentialByteBuffer() || sequentialUnsafeBuffer() != sequentialMemorySegment() ||
+                randomUnsafeBuffer() != randomByteBuffer() || randomUnsafeBuffer() != randomMemorySegment()) {
+            throw new AssertionError("Buffers are not equivalent");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        arena.close();
+    }
+
+    @Benchmark
+    public long sequentialUnsafeBuffer() {
+        final UnsafeBuffer buffer = this.unsafeBuffer;
+        final int size = buffer.capacity();
+        long sum = 0;
+        for (int i = 0; i + Long.BYTES <= size; i += Long.BYTES) {
+            sum += buffer.getLong(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = "-Dpuzzles.checkBounds=false")
+    public long sequentialUnsafeBufferUnchecked() {
+        return sequentialUnsafeBuffer();
+    }
+
+    @Benchmark
+    public long sequentialByteBuffer() {
+        final ByteBuffer buffer = this.byteBuffer;
+        final int size = buffer.capacity();
+        long sum = 0;
+        for (int i = 0; i + Long.BYTES <= size; i += Long.BYTES) {
+            sum += buffer.getLong(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sequentialMemorySegment() {
+        final MemorySegment segment = this.segment;
+        final long size = segment.byteSize();
+        long sum = 0;
+        for (long i = 0; i + Long.BYTES <= size; i += Long.BYTES) {
+            sum += segment.get(LONG, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomUnsafeBuffer() {
+        final UnsafeBuffer buffer = this.unsafeBuffer;
+        long sum = 0;
+        for (int index : randomIndexes) {
+            sum += buffer.getLong(index);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = "-Dpuzzles.checkBounds=false")
+    public long randomUnsafeBufferUnchecked() {
+        return randomUnsafeBuffer();
+    }
+
+    @Benchmark
+    public long randomByteBuffer() {
+        final ByteBuffer buffer = this.byteBuffer;
+        long sum = 0;
+        for (int index : randomIndexes) {
+            sum += buffer.getLong(index);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomMemorySegment() {
+        final MemorySegment segment = this.segment;
+        long sum = 0;
+        for (int index : randomIndexes) {
+            sum += segment.get(LONG, index);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+package red.hat.puzzles.checks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Case-insensitive lookups of the headers of a typical browser request, with names in a different case
+ * from the received ones, and some missing.
+ * <p>
+ * {@link AsciiString} caches its hash code: {@code asciiHeaderMap} wraps the looked up names from the request bytes
+ * on each lookup, as a parser would do, to pay the hashing as {@code hashMapLowerCased} does.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class HeaderLookup {
+
+    private static final String[][] REQUEST_HEADERS = {
+            {"Host", "www.example.com"},
+            {"User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/119.0"},
+            {"Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8"},
+            {"Accept-Language", "en-US,en;q=0.5"},
+            {"Accept-Encoding", "gzip, deflate, br"},
+            {"Connection", "keep-alive"},
+            {"Cookie", "session=0123456789abcdef; theme=dark"},
+            {"Upgrade-Insecure-Requests", "1"},
+            {"Sec-Fetch-Dest", "document"},
+            {"Sec-Fetch-Mode", "navigate"},
+            {"Sec-Fetch-Site", "none"},
+            {"Sec-Fetch-User", "?1"},
+            {"Cache-Control", "max-age=0"},
+            {"Content-Type", "application/x-www-form-urlencoded"},
+            {"Content-Length", "27"},
+    };
+
+    private static final String[] LOOKUPS = {
+            "host", "content-type", "CONTENT-LENGTH", "accept-encoding", "Connection",
+            "transfer-encoding", "expect", "x-forwarded-for"
+    };
+
+    private byte[] lookupBytes;
+    private int[] lookupOffsets;
+    private AsciiHeaderMap<String> asciiHeaderMap;
+    private TreeMap<String, String> treeMap;
+    private Map<String, String> hashMap;
+
+    @Setup
+    public void init() {
+        asciiHeaderMap = new AsciiHeaderMap<>(REQUEST_HEADERS.length);
+        treeMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        hashMap = new HashMap<>();
+        for (String[] header : REQUEST_HEADERS) {
+            asciiHeaderMap.put(new AsciiString(header[0]), header[1]);
+            treeMap.put(header[0], header[1]);
+            hashMap.put(header[0].toLowerCase(Locale.ROOT), header[1]);
+        }
+        lookupBytes = String.join("", LOOKUPS).getBytes(StandardCharsets.US_ASCII);
+        lookupOffsets = new int[LOOKUPS.length + 1];
+        for (int i = 0; i < LOOKUPS.length; i++) {
+            lookupOffsets[i + 1] = lookupOffsets[i] + LOOKUPS[i].length();
+        }
+        for (int i = 0; i < LOOKUPS.length; i++) {
+            final String expected = treeMap.get(LOOKUPS[i]);
+            final AsciiString lookupName = AsciiString.wrap(lookupBytes, lookupOffsets[i], LOOKUPS[i].length());
+            if (!Objects.equals(expected, asciiHeaderMap.get(lookupName)) ||
+                    !Objects.equals(expected, hashMap.get(LOOKUPS[i].toLowerCase(Locale.ROOT)))) {
+                throw new AssertionError("Lookup is broken for " + LOOKUPS[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void asciiHeaderMap(Blackhole bh) {
+        final AsciiHeaderMap<String> asciiHeaderMap = this.asciiHeaderMap;
+        final byte[] lookupBytes = this.lookupBytes;
+        final int[] lookupOffsets = this.lookupOffsets;
+        for (int i = 0; i < LOOKUPS.length; i++) {
+            final int offset = lookupOffsets[i];
+            bh.consume(asciiHeaderMap.get(AsciiString.wrap(lookupBytes, offset, lookupOffsets[i + 1] - offset)));
+        }
+    }
+
+    @Benchmark
+    public void treeMap(Blackhole bh) {
+        final TreeMap<String, String> treeMap = this.treeMap;
+        for (String name : LOOKUPS) {
+            bh.consume(treeMap.get(name));
+        }
+    }
+
+    @Benchmark
+    public void hashMapLowerCased(Blackhole bh) {
+        final Map<String, String> hashMap = this.hashMap;
+        for (String name : LOOKUPS) {
+            bh.consume(hashMap.get(name.toLowerCase(Locale.ROOT)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package red.hat.puzzles.checks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing 100 headers from a single 8KB receive buffer into an {@link AsciiHeaderMap}: copying each name and value
+ * vs {@link AsciiString#wrap wrapping} them.
+ * <p>
+ * The receive buffer is on heap: {@link AsciiString} is backed by a {@code byte[]}, so a direct one can't be wrapped,
+ * just copied as {@code copy} does.<br>
+ * Run with {@code -prof gc} to compare the bytes allocated per op.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class HeaderParsing {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"100"})
+    public int headers;
+
+    private MemorySegment request;
+    private AsciiHeaderMap<AsciiString> headerMap;
+
+    @Setup
+    public void init() {
+        final StringBuilder builder = new StringBuilder("GET /index.html HTTP/1.1\r\n");
+        for (int i = 0; i < headers; i++) {
+            builder.append("X-Custom-Header-").append(i).append(": ");
+            // fill the buffer evenly
+            final int valueLength = (BUFFER_SIZE - 64) / headers - 24;
+            for (int c = 0; c < valueLength; c++) {
+                builder.append((char) ('a' + (i + c) % 26));
+            }
+            builder.append("\r\n");
+        }
+        builder.append("\r\n");
+        final byte[] bytes = builder.toString().getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > BUFFER_SIZE) {
+            throw new IllegalStateException("The request doesn't fit the buffer");
+        }
+        request = MemorySegment.ofArray(Arrays.copyOf(bytes, BUFFER_SIZE)).asSlice(0, bytes.length);
+        headerMap = new AsciiHeaderMap<>(headers);
+        if (parse(false) != headers || parse(true) != headers) {
+            throw new AssertionError("Parsing is broken");
+        }
+    }
+
+    private static long indexOf(MemorySegment segment, long from, byte b) {
+        final long size = segment.byteSize();
+        for (long i = from; i < size; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static AsciiString asciiString(MemorySegment segment, long from, long to, boolean copy) {
+        final int length = (int) (to - from);
+        return copy ? AsciiString.copyOf(segment, from, length) : AsciiString.wrap(segment, from, length);
+    }
+
+    private int parse(boolean copy) {
+        final MemorySegment request = this.request;
+        final AsciiHeaderMap<AsciiString> headerMap = this.headerMap;
+        headerMap.clear();
+        // skip the request line
+        long lineStart = indexOf(request, 0, (byte) '\n') + 1;
+        while (request.get(ValueLayout.JAVA_BYTE, lineStart) != '\r') {
+            final long colon = indexOf(request, lineStart, (byte) ':');
+            final long lineEnd = indexOf(request, colon, (byte) '\r');
+            headerMap.put(asciiString(request, lineStart, colon, copy), asciiString(request, colon + 2, lineEnd, copy));
+            lineStart = lineEnd + 2;
+        }
+        return headerMap.size();
+    }
+
+    @Benchmark
+    public int copy() {
+        return parse(true);
+    }
+
+    @Benchmark
+    public int zeroCopy() {
+        return parse(false);
+    }
+}
@@ -25,7 +25,7 @@ import java.util.concurrent.TimeUnit;
 public class LowerCaseComparison {
 
     /**
-     * Run me with: -psame=true --jvmArgs="-XX:LoopMaxUnroll=0" -prof perfnorm
+     * Run me with: -pmismatch=none --jvmArgs="-XX:LoopMaxUnroll=0" -prof perfnorm
      *
      * The ASM produced for the 2 loops is
      *
@@ -112,26 +112,43 @@ public class LowerCaseComparison {
      *
      */
 
+    @Param({"8", "64", "512", "4096"})
+    public int size;
+
+    // where the upper case byte is, if any: a single param, to not repeat the same inputs for each position
+    @Param({"none", "first", "middle", "last"})
+    public String mismatch;
+
+    // both are slices of a larger array, at different offsets
     @Param({"false", "true"})
-    public boolean same;
+    public boolean misaligned;
 
-    @Param({"8", "4096"})
-    public int size;
     private AsciiString asciiStrings;
     private AsciiString otherAscii;
 
+    private AsciiString create(byte[] bytes, int offset) {
+        if (!misaligned) {
+            return new AsciiString(new String(bytes));
+        }
+        byte[] slice = new byte[offset + bytes.length + 1];
+        System.arraycopy(bytes, 0, slice, offset, bytes.length);
+        return new AsciiString(slice, offset, bytes.length);
+    }
+
     @Setup
     public void init() {
         byte[] bytes = new byte[size];
         Arrays.fill(bytes, (byte) 'c');
-        String string = new String(bytes);
-        asciiStrings = new AsciiString(string);
-        if (same) {
-            otherAscii = new AsciiString(string);
-        } else {
-            bytes[0] = (byte) 'C';
-            otherAscii = new AsciiString(new String(bytes));
+        asciiStrings = create(bytes, 1);
+        switch (mismatch) {
+            case "none" -> {
+            }
+            case "first" -> bytes[0] = (byte) 'C';
+            case "middle" -> bytes[size / 2] = (byte) 'C';
+            case "last" -> bytes[size - 1] = (byte) 'C';
+            default -> throw new IllegalArgumentException("Unknown mismatch " + mismatch);
         }
+        otherAscii = create(bytes, 3);
     }
 
     @Benchmark
@@ -146,11 +163,18 @@ public class LowerCaseComparison {
         return asciiStrings.optimizedContentEqualsIgnoreCase(otherAscii);
     }
 
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public boolean swarContentEqualsIgnoreCase() {
+        return asciiStrings.swarContentEqualsIgnoreCase(otherAscii);
+    }
+
     public static void main(String[] args) {
         boolean optimized = true;
         LowerCaseComparison test = new LowerCaseComparison();
-        test.same = true;
+        test.mismatch = "none";
         test.size = 4096;
+        test.misaligned = false;
         test.init();
         while (true) {
             if (optimized) {
@@ -0,0 +1,101 @@
+package red.hat.puzzles.checks;
+
+import sun.misc.Unsafe;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Native order accessors over a {@link MemorySegment}, using {@link Unsafe} and
+ * {@link BoundChecks#branchlessIsOutOfBounds} in place of the segment own checks.
+ * <p>
+ * {@code -Dpuzzles.checkBounds=false} disables the bound checks, for good: it's read into a static final field,
+ * which the JIT can constant fold.<br>
+ * The liveness of the segment is never checked: accessing it after closing its arena can crash the JVM.
+ */
+public final class UnsafeBuffer {
+
+    static final boolean CHECK_BOUNDS = Boolean.parseBoolean(System.getProperty("puzzles.checkBounds", "true"));
+
+    private static final Unsafe UNSAFE;
+
+    static {
+        // retrieve the unsafe instance
+        try {
+            var field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // just to keep it reachable
+    private final MemorySegment segment;
+    private final Object base;
+    private final long address;
+    private final int capacity;
+
+    public UnsafeBuffer(MemorySegment segment) {
+        if (segment.isReadOnly()) {
+            throw new IllegalArgumentException("Read-only segments are not supported");
+        }
+        final Object base = segment.heapBase().orElse(null);
+        if (base != null && !(base instanceof byte[])) {
+            throw new IllegalArgumentException("Just byte[] heap segments are supported");
+        }
+        this.segment = segment;
+        this.base = base;
+        // the address of a heap segment is its offset within the array
+        this.address = base == null ? segment.address() : Unsafe.ARRAY_BYTE_BASE_OFFSET + segment.address();
+        this.capacity = Math.toIntExact(segment.byteSize());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    private void checkBounds(int index, int length) {
+        if (CHECK_BOUNDS && BoundChecks.branchlessIsOutOfBounds(index, length, capacity)) {
+            throw outOfBounds(index, length);
+        }
+    }
+
+    // out of the hot paths, to not bloat them
+    private IndexOutOfBoundsException outOfBounds(int index, int length) {
+        return new IndexOutOfBoundsException("index: " + index + ", length: " + length + ", capacity: " + capacity);
+    }
+
+    public byte getByte(int index) {
+        checkBounds(index, Byte.BYTES);
+        return UNSAFE.getByte(base, address + index);
+    }
+
+    public int getInt(int index) {
+        checkBounds(index, Integer.BYTES);
+        return UNSAFE.getInt(base, address + index);
+    }
+
+    public long getLong(int index) {
+        checkBounds(index, Long.BYTES);
+        return UNSAFE.getLong(base, address + index);
+    }
+
+    public void putByte(int index, byte value) {
+        checkBounds(index, Byte.BYTES);
+        UNSAFE.putByte(base, address + index, value);
+    }
+
+    public void putInt(int index, int value) {
+        checkBounds(index, Integer.BYTES);
+        UNSAFE.putInt(base, address + index, value);
+    }
+
+    public void putLong(int index, long value) {
+        checkBounds(index, Long.BYTES);
+        UNSAFE.putLong(base, address + index, value);
+    }
+}
@@ -0,0 +1,182 @@
+package red.hat.puzzles.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Copy-on-write identity map which is a flat array of key/value pairs, as
+ * {@link SingleWriterCopyOnWriteArrayIdentityMap}, till it holds {@code threshold} entries, and an open addressing
+ * table indexed by {@link System#identityHashCode} above it.
+ * <p>
+ * Both forms are immutable and published in the same volatile field: a lookup still performs a single volatile
+ * load, followed by a type check to pick the form.<br>
+ * Writers publish with a CAS, retrying on concurrent writes, as {@link MultiWriterCopyOnWriteArrayIdentityMap}.
+ */
+final class AdaptiveCopyOnWriteIdentityMap<K, V> {
+
+    private static final AtomicReferenceFieldUpdater<AdaptiveCopyOnWriteIdentityMap, Object> STATE_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(AdaptiveCopyOnWriteIdentityMap.class, Object.class, "state");
+
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    /**
+     * Key/value pairs in a power of 2 array, at most half full, to keep the probe sequences short.
+     */
+    private static final class Table {
+
+        private final Object[] slots;
+        private final int mask;
+        private final int size;
+
+        private Table(Object[] pairs, int size) {
+            final int capacity = Integer.highestOneBit(size) << 2;
+            this.slots = new Object[capacity * 2];
+            // the index of the key of each pair
+            this.mask = (capacity - 1) << 1;
+            this.size = size;
+            for (int i = 0; i < size * 2; i += 2) {
+                int index = indexOf(pairs[i]);
+                while (slots[index] != null) {
+                    index = (index + 2) & mask;
+                }
+                slots[index] = pairs[i];
+                slots[index + 1] = pairs[i + 1];
+            }
+        }
+
+        private int indexOf(Object key) {
+            final int hash = System.identityHashCode(key);
+            return ((hash ^ (hash >>> 16)) << 1) & mask;
+        }
+
+        private Object get(Object key) {
+            final Object[] slots = this.slots;
+            final int mask = this.mask;
+            for (int i = indexOf(key); ; i = (i + 2) & mask) {
+                final Object candidate = slots[i];
+                if (candidate == key) {
+                    return slots[i + 1];
+                }
+                if (candidate == null) {
+                    return null;
+                }
+            }
+        }
+
+        private Object[] toPairs() {
+            final Object[] pairs = new Object[size * 2];
+            int pair = 0;
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != null) {
+                    pairs[pair] = slots[i];
+                    pairs[pair + 1] = slots[i + 1];
+                    pair += 2;
+                }
+            }
+            return pairs;
+        }
+    }
+
+    private final int threshold;
+    // either Object[] or Table
+    private volatile Object state;
+
+    public AdaptiveCopyOnWriteIdentityMap() {
+        this(8);
+    }
+
+    /**
+     * @param threshold the max number of entries searched linearly
+     */
+    public AdaptiveCopyOnWriteIdentityMap(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold cannot be negative");
+        }
+        this.threshold = threshold;
+        // lazySet is enough: no other thread can see this map before it's safely published
+        STATE_UPDATER.lazySet(this, EMPTY_ARRAY);
+    }
+
+    public V get(K key) {
+        final Object state = this.state;
+        // Table is final: checking it is cheaper than the subtype check required by Object[]
+        if (state instanceof Table table) {
+            return (V) table.get(key);
+        }
+        final Object[] array = (Object[]) state;
+        for (int i = 0; i < array.length; i += 2) {
+            if (array[i] == key) {
+                return (V) array[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        final Object state = this.state;
+        return state instanceof Object[] array ? array.length / 2 : ((Table) state).size;
+    }
+
+    private Object newState(Object[] pairs, int size) {
+        return size <= threshold ? pairs : new Table(pairs, size);
+    }
+
+    private static Object[] pairsOf(Object state) {
+        return state instanceof Object[] array ? array : ((Table) state).toPairs();
+    }
+
+    public void put(K key, V value) {
+        for (; ; ) {
+            final Object oldState = state;
+            final Object[] oldPairs = pairsOf(oldState);
+            int keyIndex = -1;
+            for (int i = 0; i < oldPairs.length; i += 2) {
+                if (oldPairs[i] == key) {
+                    if (oldPairs[i + 1] == value) {
+                        return;
+                    }
+                    keyIndex = i;
+                    break;
+                }
+            }
+            final Object[] newPairs;
+            if (keyIndex != -1) {
+                // the pairs of a table are already a private copy
+                newPairs = oldPairs == oldState ? oldPairs.clone() : oldPairs;
+                newPairs[keyIndex + 1] = value;
+            } else {
+                newPairs = new Object[oldPairs.length + 2];
+                System.arraycopy(oldPairs, 0, newPairs, 0, oldPairs.length);
+                newPairs[oldPairs.length] = key;
+                newPairs[oldPairs.length + 1] = value;
+            }
+            if (STATE_UPDATER.compareAndSet(this, oldState, newState(newPairs, newPairs.length / 2))) {
+                return;
+            }
+        }
+    }
+
+    public void removeEntriesWithValue(V value) {
+        for (; ; ) {
+            final Object oldState = state;
+            final Object[] oldPairs = pairsOf(oldState);
+            final Object[] survivors = new Object[oldPairs.length];
+            int newIdx = 0;
+            for (int i = 0; i < oldPairs.length; i += 2) {
+                if (oldPairs[i + 1] != value) {
+                    survivors[newIdx] = oldPairs[i];
+                    survivors[newIdx + 1] = oldPairs[i + 1];
+                    newIdx += 2;
+                }
+            }
+            if (newIdx == oldPairs.length) {
+                // value not found
+                return;
+            }
+            final Object[] newPairs = newIdx == 0 ? EMPTY_ARRAY : Arrays.copyOf(survivors, newIdx);
+            if (STATE_UPDATER.compareAndSet(this, oldState, newState(newPairs, newIdx / 2))) {
+                return;
+            }
+        }
+    }
+}
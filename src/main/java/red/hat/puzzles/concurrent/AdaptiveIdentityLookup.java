@@ -0,0 +1,108 @@
+package red.hat.puzzles.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up registered ClassLoaders, in random order, with more entries than {@link IndentityLookup}.
+ * <p>
+ * {@link AdaptiveCopyOnWriteIdentityMap} switches to its table above {@code threshold} entries.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2)
+public class AdaptiveIdentityLookup {
+
+    private static final int LOOKUPS = 1024;
+
+    private static final class CustomClassLoader extends ClassLoader {
+    }
+
+    @Param({"1", "4", "16", "64", "1024"})
+    public int size;
+
+    @Param({"8"})
+    public int threshold;
+
+    private SingleWriterCopyOnWriteArrayIdentityMap<ClassLoader, Object> arrayMap;
+    private AdaptiveCopyOnWriteIdentityMap<ClassLoader, Object> adaptiveMap;
+    private Map<ClassLoader, Object> hashMap;
+    private Map<ClassLoader, Object> identityHashMap;
+    private Map<ClassLoader, Object> concurrentHashMap;
+    private ClassLoader[] lookups;
+    private int next;
+
+    @Setup
+    public void init() {
+        arrayMap = new SingleWriterCopyOnWriteArrayIdentityMap<>();
+        adaptiveMap = new AdaptiveCopyOnWriteIdentityMap<>(threshold);
+        hashMap = new HashMap<>();
+        identityHashMap = new IdentityHashMap<>();
+        concurrentHashMap = new ConcurrentHashMap<>();
+        final ClassLoader[] classLoaders = new ClassLoader[size];
+        for (int i = 0; i < size; i++) {
+            classLoaders[i] = new CustomClassLoader();
+            final Object value = new Object();
+            arrayMap.put(classLoaders[i], value);
+            adaptiveMap.put(classLoaders[i], value);
+            hashMap.put(classLoaders[i], value);
+            identityHashMap.put(classLoaders[i], value);
+            concurrentHashMap.put(classLoaders[i], value);
+        }
+        final SplittableRandom rnd = new SplittableRandom(42);
+        lookups = new ClassLoader[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = classLoaders[rnd.nextInt(size)];
+            if (adaptiveMap.get(lookups[i]) != hashMap.get(lookups[i]) || arrayMap.get(lookups[i]) != hashMap.get(lookups[i])) {
+                throw new AssertionError("Lookup is broken");
+            }
+        }
+    }
+
+    private ClassLoader nextClassLoader() {
+        final int next = this.next;
+        this.next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    @Benchmark
+    public Object arrayMap() {
+        return arrayMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object adaptiveMap() {
+        return adaptiveMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object hashMap() {
+        return hashMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object identityHashMap() {
+        return identityHashMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object concurrentHashMap() {
+        return concurrentHashMap.get(nextClassLoader());
+    }
+}
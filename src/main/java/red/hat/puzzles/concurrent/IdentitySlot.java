@@ -0,0 +1,12 @@
+package red.hat.puzzles.concurrent;
+
+/**
+ * Keys which carry their own identity, as {@link red.hat.puzzles.itable.IdPresence} does, to be looked up
+ * by {@link SlotIdentityMap} without {@link System#identityHashCode}.
+ * <p>
+ * Implementations are expected to assign it once, at construction, via {@link SlotIdentityMap#newSlot()}.
+ */
+public interface IdentitySlot {
+
+    int identitySlot();
+}
@@ -3,6 +3,8 @@ package red.hat.puzzles.concurrent;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.CompilerControl;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Param;
@@ -46,6 +48,31 @@ public class IndentityLookup {
     private static final class CustomClassLoader extends ClassLoader {
     }
 
+    /**
+     * The maps shared by the readers and writers of a group, with a single registered ClassLoader.
+     */
+    @State(Scope.Group)
+    public static class SharedMaps {
+        private final ClassLoader registered = new CustomClassLoader();
+        private final SingleWriterCopyOnWriteArrayIdentityMap<ClassLoader, Object> singleWriter = new SingleWriterCopyOnWriteArrayIdentityMap<>();
+        private final MultiWriterCopyOnWriteArrayIdentityMap<ClassLoader, Object> multiWriter = new MultiWriterCopyOnWriteArrayIdentityMap<>();
+
+        @Setup
+        public void init() {
+            singleWriter.put(registered, new Object());
+            multiWriter.put(registered, new Object());
+        }
+    }
+
+    /**
+     * What each writer keeps (un)deploying.
+     */
+    @State(Scope.Thread)
+    public static class Deployment {
+        private final ClassLoader classLoader = new CustomClassLoader();
+        private final Object value = new Object();
+    }
+
     @Setup
     public void init(Blackhole bh) {
         executor = Executors.newCachedThreadPool();
@@ -150,6 +177,36 @@ public class IndentityLookup {
         return missingClassLoader.hashCode();
     }
 
+    @Benchmark
+    @Group("singleWriter")
+    @GroupThreads(1)
+    public void singleWriterRedeploy(SharedMaps maps, Deployment deployment) {
+        maps.singleWriter.put(deployment.classLoader, deployment.value);
+        maps.singleWriter.removeEntriesWithValue(deployment.value);
+    }
+
+    @Benchmark
+    @Group("singleWriter")
+    @GroupThreads(2)
+    public Object singleWriterGet(SharedMaps maps) {
+        return maps.singleWriter.get(maps.registered);
+    }
+
+    @Benchmark
+    @Group("multiWriter")
+    @GroupThreads(2)
+    public void multiWriterRedeploy(SharedMaps maps, Deployment deployment) {
+        maps.multiWriter.put(deployment.classLoader, deployment.value);
+        maps.multiWriter.removeEntriesWithValue(deployment.value);
+    }
+
+    @Benchmark
+    @Group("multiWriter")
+    @GroupThreads(2)
+    public Object multiWriterGet(SharedMaps maps) {
+        return maps.multiWriter.get(maps.registered);
+    }
+
     @TearDown
     public void tearDown() throws InterruptedException {
         unblock.countDown();
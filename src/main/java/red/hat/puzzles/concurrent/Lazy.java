@@ -0,0 +1,316 @@
+package red.hat.puzzles.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * A value created on first use, by one of the {@link DoubleCheckedLockingInitial} strategies or
+ * by the JVM ones, which can constant fold it:
+ * <ul>
+ *     <li>{@link Strategy#MUTABLE_CALL_SITE}: once created, the value becomes the constant target of a
+ *     {@link MutableCallSite}, which the JIT can inline</li>
+ *     <li>{@link Strategy#STABLE_VALUE}: delegates to {@code java.lang.StableValue}, if available (eg JDK 25 with
+ *     {@code --enable-preview}), see {@link Strategy#isAvailable()}</li>
+ * </ul>
+ * Both are implemented by records, whose final fields the JIT trusts: the value can be constant folded only if the
+ * {@link Lazy} itself is a constant, eg stored in a static final field.
+ * <p>
+ * The other strategies don't support {@code null} values.
+ */
+public interface Lazy<T> extends Supplier<T> {
+
+    Strategy strategy();
+
+    static <T> Lazy<T> of(Strategy strategy, Supplier<? extends T> factory) {
+        return strategy.create(Objects.requireNonNull(factory));
+    }
+
+    enum Strategy {
+        SYNCHRONIZED {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return new SynchronizedLazy<>(factory);
+            }
+        },
+        SYNCHRONIZED_VOLATILE_SET {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return new SynchronizedVolatileSetLazy<>(factory);
+            }
+        },
+        SYNCHRONIZED_LAZY_SET {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return new SynchronizedLazySetLazy<>(factory);
+            }
+        },
+        /**
+         * Racing threads can all create the value, but just one wins.
+         */
+        COMPARE_AND_SET {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return new CompareAndSetLazy<>(factory);
+            }
+        },
+        MUTABLE_CALL_SITE {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return CallSiteLazy.create(factory);
+            }
+        },
+        STABLE_VALUE {
+            @Override
+            <T> Lazy<T> create(Supplier<? extends T> factory) {
+                return StableValueLazy.create(factory);
+            }
+
+            @Override
+            public boolean isAvailable() {
+                return StableValueLazy.STABLE_SUPPLIER != null;
+            }
+        };
+
+        abstract <T> Lazy<T> create(Supplier<? extends T> factory);
+
+        public boolean isAvailable() {
+            return true;
+        }
+
+        private static <T> T createValue(Supplier<? extends T> factory) {
+            return Objects.requireNonNull(factory.get(), "null values are not supported");
+        }
+
+        private static final class SynchronizedLazy<T> implements Lazy<T> {
+            private final Supplier<? extends T> factory;
+            private T value;
+
+            private SynchronizedLazy(Supplier<? extends T> factory) {
+                this.factory = factory;
+            }
+
+            @Override
+            public synchronized T get() {
+                var value = this.value;
+                if (value != null) {
+                    return value;
+                }
+                value = createValue(factory);
+                this.value = value;
+                return value;
+            }
+
+            @Override
+            public Strategy strategy() {
+                return SYNCHRONIZED;
+            }
+        }
+
+        private static final class SynchronizedVolatileSetLazy<T> implements Lazy<T> {
+            private final Supplier<? extends T> factory;
+            private volatile T value;
+
+            private SynchronizedVolatileSetLazy(Supplier<? extends T> factory) {
+                this.factory = factory;
+            }
+
+            @Override
+            public T get() {
+                var value = this.value;
+                if (value != null) {
+                    return value;
+                }
+                synchronized (this) {
+                    value = this.value;
+                    if (value != null) {
+                        return value;
+                    }
+                    value = createValue(factory);
+                    this.value = value;
+                    return value;
+                }
+            }
+
+            @Override
+            public Strategy strategy() {
+                return SYNCHRONIZED_VOLATILE_SET;
+            }
+        }
+
+        private static final class SynchronizedLazySetLazy<T> implements Lazy<T> {
+            private static final AtomicReferenceFieldUpdater<SynchronizedLazySetLazy, Object> VALUE_UPDATER =
+                    AtomicReferenceFieldUpdater.newUpdater(SynchronizedLazySetLazy.class, Object.class, "value");
+
+            private final Supplier<? extends T> factory;
+            private volatile T value;
+
+            private SynchronizedLazySetLazy(Supplier<? extends T> factory) {
+                this.factory = factory;
+            }
+
+            @Override
+            public T get() {
+                var value = this.value;
+                if (value != null) {
+                    return value;
+                }
+                synchronized (this) {
+                    value = this.value;
+                    if (value != null) {
+                        return value;
+                    }
+                    value = createValue(factory);
+                    VALUE_UPDATER.lazySet(this, value);
+                    return value;
+                }
+            }
+
+            @Override
+            public Strategy strategy() {
+                return SYNCHRONIZED_LAZY_SET;
+            }
+        }
+
+        private static final class CompareAndSetLazy<T> implements Lazy<T> {
+            private static final AtomicReferenceFieldUpdater<CompareAndSetLazy, Object> VALUE_UPDATER =
+                    AtomicReferenceFieldUpdater.newUpdater(CompareAndSetLazy.class, Object.class, "value");
+
+            private final Supplier<? extends T> factory;
+            private volatile T value;
+
+            private CompareAndSetLazy(Supplier<? extends T> factory) {
+                this.factory = factory;
+            }
+
+            @Override
+            public T get() {
+                var value = this.value;
+                if (value != null) {
+                    return value;
+                }
+                final T newValue = createValue(factory);
+                if (!VALUE_UPDATER.compareAndSet(this, null, newValue)) {
+                    return this.value;
+                }
+                return newValue;
+            }
+
+            @Override
+            public Strategy strategy() {
+                return COMPARE_AND_SET;
+            }
+        }
+
+        /**
+         * The initial target of the call site creates the value, under a lock, and replaces itself with it.
+         */
+        private static final class CallSiteInitializer {
+            private static final MethodHandle INITIALIZE;
+
+            static {
+                try {
+                    INITIALIZE = MethodHandles.lookup().findVirtual(CallSiteInitializer.class, "initialize",
+                            MethodType.methodType(Object.class));
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            private final MutableCallSite callSite;
+            private final Supplier<?> factory;
+            private boolean initialized;
+            private Object value;
+
+            private CallSiteInitializer(MutableCallSite callSite, Supplier<?> factory) {
+                this.callSite = callSite;
+                this.factory = factory;
+            }
+
+            private synchronized Object initialize() {
+                // racing threads could have already entered via the initial target
+                if (!initialized) {
+                    value = factory.get();
+                    callSite.setTarget(MethodHandles.constant(Object.class, value));
+                    MutableCallSite.syncAll(new MutableCallSite[]{callSite});
+                    initialized = true;
+                }
+                return value;
+            }
+        }
+
+        private record CallSiteLazy<T>(MethodHandle invoker) implements Lazy<T> {
+
+            static <T> CallSiteLazy<T> create(Supplier<? extends T> factory) {
+                final MutableCallSite callSite = new MutableCallSite(MethodType.methodType(Object.class));
+                callSite.setTarget(CallSiteInitializer.INITIALIZE.bindTo(new CallSiteInitializer(callSite, factory)));
+                return new CallSiteLazy<>(callSite.dynamicInvoker());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get() {
+                try {
+                    return (T) (Object) invoker.invokeExact();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+
+            @Override
+            public Strategy strategy() {
+                return MUTABLE_CALL_SITE;
+            }
+        }
+
+        private record StableValueLazy<T>(Supplier<T> supplier) implements Lazy<T> {
+
+            // StableValue::supplier, if available
+            private static final MethodHandle STABLE_SUPPLIER = stableSupplier();
+
+            private static MethodHandle stableSupplier() {
+                try {
+                    final MethodHandle stableSupplier = MethodHandles.publicLookup().findStatic(
+                            Class.forName("java.lang.StableValue"), "supplier",
+                            MethodType.methodType(Supplier.class, Supplier.class));
+                    // it can still fail if preview features are not enabled
+                    final Supplier<?> probe = (Supplier<?>) stableSupplier.invokeExact((Supplier<?>) () -> Boolean.TRUE);
+                    probe.get();
+                    return stableSupplier;
+                } catch (Throwable unavailable) {
+                    return null;
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            static <T> StableValueLazy<T> create(Supplier<? extends T> factory) {
+                if (STABLE_SUPPLIER == null) {
+                    throw new UnsupportedOperationException("java.lang.StableValue is not available");
+                }
+                try {
+                    return new StableValueLazy<>((Supplier<T>) (Supplier<?>) STABLE_SUPPLIER.invokeExact((Supplier<?>) factory));
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+
+            @Override
+            public T get() {
+                return supplier.get();
+            }
+
+            @Override
+            public Strategy strategy() {
+                return STABLE_VALUE;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package red.hat.puzzles.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state {@link Lazy#get()} of the {@link DoubleCheckedLockingInitial} singleton, shared by all threads:
+ * <ul>
+ *     <li>{@code instanceGet}: the {@link Lazy} is a field, as in {@link DoubleCheckedLockingInitial}</li>
+ *     <li>{@code staticGet}: the {@link Lazy} is a static final field, which the JIT can constant fold</li>
+ * </ul>
+ * {@link Lazy.Strategy#STABLE_VALUE} is not in the defaults, since it requires a JDK which provides it: run it with
+ * eg {@code -p strategy=STABLE_VALUE -jvmArgsAppend --enable-preview}.
+ */
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class LazyInitialization {
+
+    // a static final holder per strategy, initialized on first access: no fork is required to switch strategy
+    private static final class SynchronizedHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.SYNCHRONIZED, ConcurrentHashMap::new);
+    }
+
+    private static final class SynchronizedVolatileSetHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.SYNCHRONIZED_VOLATILE_SET, ConcurrentHashMap::new);
+    }
+
+    private static final class SynchronizedLazySetHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.SYNCHRONIZED_LAZY_SET, ConcurrentHashMap::new);
+    }
+
+    private static final class CompareAndSetHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.COMPARE_AND_SET, ConcurrentHashMap::new);
+    }
+
+    private static final class MutableCallSiteHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.MUTABLE_CALL_SITE, ConcurrentHashMap::new);
+    }
+
+    private static final class StableValueHolder {
+        private static final Lazy<ConcurrentMap<Object, Object>> LAZY = Lazy.of(Lazy.Strategy.STABLE_VALUE, ConcurrentHashMap::new);
+    }
+
+    @Param({"SYNCHRONIZED", "SYNCHRONIZED_VOLATILE_SET", "SYNCHRONIZED_LAZY_SET", "COMPARE_AND_SET", "MUTABLE_CALL_SITE"})
+    public Lazy.Strategy strategy;
+
+    private Lazy<ConcurrentMap<Object, Object>> lazy;
+
+    @Setup
+    public void init() {
+        if (!strategy.isAvailable()) {
+            throw new IllegalStateException(strategy + " is not available on this JVM");
+        }
+        lazy = Lazy.of(strategy, ConcurrentHashMap::new);
+        // steady state only
+        if (lazy.get() != lazy.get() || staticLazyGet() != staticLazyGet()) {
+            throw new AssertionError("Lazy is broken");
+        }
+    }
+
+    /**
+     * The switch on the (constant per trial) strategy is the same for all the strategies, and well predicted.
+     */
+    private ConcurrentMap<Object, Object> staticLazyGet() {
+        return switch (strategy) {
+            case SYNCHRONIZED -> SynchronizedHolder.LAZY.get();
+            case SYNCHRONIZED_VOLATILE_SET -> SynchronizedVolatileSetHolder.LAZY.get();
+            case SYNCHRONIZED_LAZY_SET -> SynchronizedLazySetHolder.LAZY.get();
+            case COMPARE_AND_SET -> CompareAndSetHolder.LAZY.get();
+            case MUTABLE_CALL_SITE -> MutableCallSiteHolder.LAZY.get();
+            case STABLE_VALUE -> StableValueHolder.LAZY.get();
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConcurrentMap<Object, Object> instanceGet1() {
+        return lazy.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ConcurrentMap<Object, Object> instanceGet8() {
+        return lazy.get();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public ConcurrentMap<Object, Object> instanceGet32() {
+        return lazy.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConcurrentMap<Object, Object> staticGet1() {
+        return staticLazyGet();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ConcurrentMap<Object, Object> staticGet8() {
+        return staticLazyGet();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public ConcurrentMap<Object, Object> staticGet32() {
+        return staticLazyGet();
+    }
+}
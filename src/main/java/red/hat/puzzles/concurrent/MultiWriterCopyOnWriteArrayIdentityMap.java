@@ -0,0 +1,112 @@
+package red.hat.puzzles.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Same as {@link SingleWriterCopyOnWriteArrayIdentityMap}, but thread-safe for multiple writers too: each write
+ * publishes its copy with a CAS, and retries from the latest entries if another writer won the race.
+ * <p>
+ * Readers still just perform a volatile load and a linear search.
+ */
+final class MultiWriterCopyOnWriteArrayIdentityMap<K, V> {
+
+    private static final AtomicReferenceFieldUpdater<MultiWriterCopyOnWriteArrayIdentityMap, Object[]> ENTRIES_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(MultiWriterCopyOnWriteArrayIdentityMap.class, Object[].class, "entries");
+
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    private volatile Object[] entries;
+
+    public MultiWriterCopyOnWriteArrayIdentityMap() {
+        // lazySet is enough: no other thread can see this map before it's safely published
+        ENTRIES_UPDATER.lazySet(this, EMPTY_ARRAY);
+    }
+
+    public V get(K key) {
+        final Object[] array = this.entries;
+        for (int i = 0; i < array.length; i += 2) {
+            if (array[i] == key) {
+                return (V) array[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public void put(K key, V value) {
+        for (; ; ) {
+            final Object[] oldEntries = entries;
+            // verify if the key already exists in the array
+            // or if the value is the same
+            int keyIndex = -1;
+            for (int i = 0; i < oldEntries.length; i += 2) {
+                if (oldEntries[i] == key) {
+                    if (oldEntries[i + 1] == value) {
+                        return;
+                    }
+                    keyIndex = i;
+                    break;
+                }
+            }
+            final Object[] newEntries;
+            if (keyIndex != -1) {
+                // key already exists, but the value is different
+                newEntries = new Object[oldEntries.length];
+                System.arraycopy(oldEntries, 0, newEntries, 0, oldEntries.length);
+                newEntries[keyIndex + 1] = value;
+            } else {
+                // key does not exist, add it
+                newEntries = new Object[oldEntries.length + 2];
+                System.arraycopy(oldEntries, 0, newEntries, 0, oldEntries.length);
+                newEntries[oldEntries.length] = key;
+                newEntries[oldEntries.length + 1] = value;
+            }
+            if (ENTRIES_UPDATER.compareAndSet(this, oldEntries, newEntries)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+
+    public void removeEntriesWithValue(V value) {
+        for (; ; ) {
+            final Object[] oldEntries = entries;
+            // verify first where the first value is found
+            int firstKeyWithValueMatches = -1;
+            for (int i = 0; i < oldEntries.length; i += 2) {
+                if (oldEntries[i + 1] == value) {
+                    firstKeyWithValueMatches = i;
+                    break;
+                }
+            }
+            if (firstKeyWithValueMatches == -1) {
+                // value not found
+                return;
+            }
+            // create a new ArrayList of survivors (we're generous with the initial size)
+            Object[] newEntries = new Object[oldEntries.length - 2];
+            // copy the first part of the array till the matching key/value pair
+            if (firstKeyWithValueMatches > 0) {
+                System.arraycopy(oldEntries, 0, newEntries, 0, firstKeyWithValueMatches);
+            }
+            int newIdx = firstKeyWithValueMatches;
+            // filter and add the other key/value pairs, not matching the value
+            for (int i = firstKeyWithValueMatches + 2; i < oldEntries.length; i += 2) {
+                if (oldEntries[i + 1] != value) {
+                    newEntries[newIdx] = oldEntries[i];
+                    newEntries[newIdx + 1] = oldEntries[i + 1];
+                    newIdx += 2;
+                }
+            }
+            // create a new exact array if necessary
+            if (newIdx < newEntries.length) {
+                newEntries = newIdx == 0 ? EMPTY_ARRAY : Arrays.copyOf(newEntries, newIdx);
+            }
+            if (ENTRIES_UPDATER.compareAndSet(this, oldEntries, newEntries)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package red.hat.puzzles.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent lookups of registered ClassLoaders, whose monitors can be held by a background thread, as
+ * {@link IndentityLookup} does with {@code disableHashCodeIntrinsics}:
+ * <ul>
+ *     <li>{@code slotMap}: {@link SlotIdentityMap}, which never calls {@link System#identityHashCode}</li>
+ *     <li>{@code adaptiveMap}: {@link AdaptiveCopyOnWriteIdentityMap}, past its array threshold</li>
+ *     <li>{@code concurrentHashMap}: {@link ConcurrentHashMap}, given that ClassLoader uses the identity hash code</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class SlotIdentityLookup {
+
+    private static final int LOOKUPS = 1024;
+
+    private static final class SlottedClassLoader extends ClassLoader implements IdentitySlot {
+
+        private final int identitySlot = SlotIdentityMap.newSlot();
+
+        @Override
+        public int identitySlot() {
+            return identitySlot;
+        }
+    }
+
+    @Param({"16", "256"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean locked;
+
+    private SlottedClassLoader[] classLoaders;
+    private SlotIdentityMap<SlottedClassLoader, Object> slotMap;
+    private AdaptiveCopyOnWriteIdentityMap<SlottedClassLoader, Object> adaptiveMap;
+    private ConcurrentHashMap<SlottedClassLoader, Object> concurrentHashMap;
+    private CountDownLatch unblock;
+    private Thread lockHolder;
+
+    @State(Scope.Thread)
+    public static class Lookups {
+
+        SlottedClassLoader[] classLoaders;
+        int next;
+
+        @Setup
+        public void init(SlotIdentityLookup benchmark, ThreadParams threadParams) {
+            final SplittableRandom rnd = new SplittableRandom(threadParams.getThreadIndex());
+            classLoaders = new SlottedClassLoader[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                classLoaders[i] = benchmark.classLoaders[rnd.nextInt(benchmark.classLoaders.length)];
+            }
+        }
+
+        SlottedClassLoader nextClassLoader() {
+            final int next = this.next;
+            this.next = (next + 1) & (LOOKUPS - 1);
+            return classLoaders[next];
+        }
+    }
+
+    @Setup
+    public void init() throws InterruptedException {
+        classLoaders = new SlottedClassLoader[size];
+        slotMap = new SlotIdentityMap<>();
+        adaptiveMap = new AdaptiveCopyOnWriteIdentityMap<>();
+        concurrentHashMap = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            classLoaders[i] = new SlottedClassLoader();
+            final Object value = new Object();
+            slotMap.put(classLoaders[i], value);
+            adaptiveMap.put(classLoaders[i], value);
+            concurrentHashMap.put(classLoaders[i], value);
+        }
+        for (SlottedClassLoader classLoader : classLoaders) {
+            if (slotMap.get(classLoader) != concurrentHashMap.get(classLoader) ||
+                    adaptiveMap.get(classLoader) != concurrentHashMap.get(classLoader)) {
+                throw new AssertionError("Lookup is broken");
+            }
+        }
+        unblock = new CountDownLatch(1);
+        if (locked) {
+            final CountDownLatch allLocked = new CountDownLatch(1);
+            lockHolder = new Thread(() -> lockAll(0, allLocked));
+            lockHolder.setDaemon(true);
+            lockHolder.start();
+            allLocked.await();
+        }
+    }
+
+    private void lockAll(int index, CountDownLatch allLocked) {
+        if (index == classLoaders.length) {
+            allLocked.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException ignore) {
+
+            }
+            return;
+        }
+        synchronized (classLoaders[index]) {
+            lockAll(index + 1, allLocked);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        unblock.countDown();
+        if (lockHolder != null) {
+            lockHolder.join();
+        }
+    }
+
+    private Object slotMap(Lookups lookups) {
+        return slotMap.get(lookups.nextClassLoader());
+    }
+
+    private Object adaptiveMap(Lookups lookups) {
+        return adaptiveMap.get(lookups.nextClassLoader());
+    }
+
+    private Object concurrentHashMap(Lookups lookups) {
+        return concurrentHashMap.get(lookups.nextClassLoader());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object slotMap1(Lookups lookups) {
+        return slotMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object slotMap4(Lookups lookups) {
+        return slotMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object slotMap16(Lookups lookups) {
+        return slotMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object adaptiveMap1(Lookups lookups) {
+        return adaptiveMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object adaptiveMap4(Lookups lookups) {
+        return adaptiveMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object adaptiveMap16(Lookups lookups) {
+        return adaptiveMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object concurrentHashMap1(Lookups lookups) {
+        return concurrentHashMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object concurrentHashMap4(Lookups lookups) {
+        return concurrentHashMap(lookups);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object concurrentHashMap16(Lookups lookups) {
+        return concurrentHashMap(lookups);
+    }
+}
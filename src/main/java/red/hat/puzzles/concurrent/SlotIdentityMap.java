@@ -0,0 +1,159 @@
+package red.hat.puzzles.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Copy-on-write identity map whose open addressing table is indexed by the {@link IdentitySlot} of the keys.
+ * <p>
+ * {@link System#identityHashCode} has a fast path only if the object header is not displaced: if another thread
+ * is holding the key monitor, it has to go through the slow path, which can be way more costly.<br>
+ * Here, the identity of a key is just a field, which doesn't depend on the monitor state: the price to pay is an
+ * interface call, which is cheap as long as the call site sees few key types, see {@code itable} benchmarks.
+ * <p>
+ * As the others copy-on-write identity maps, a lookup performs a single volatile load, while writers publish
+ * via CAS.
+ */
+final class SlotIdentityMap<K extends IdentitySlot, V> {
+
+    private static final AtomicReferenceFieldUpdater<SlotIdentityMap, Object[]> TABLE_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(SlotIdentityMap.class, Object[].class, "table");
+
+    // the smallest table: 2 key/value pairs, which can't be both occupied
+    private static final Object[] EMPTY_TABLE = new Object[4];
+
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    // power of 2 key/value pairs, at most half full
+    private volatile Object[] table;
+
+    public SlotIdentityMap() {
+        // lazySet is enough: no other thread can see this map before it's safely published
+        TABLE_UPDATER.lazySet(this, EMPTY_TABLE);
+    }
+
+    /**
+     * Slots are sequential: Fibonacci hashing spreads them evenly on the table.
+     */
+    public static int newSlot() {
+        return NEXT_SLOT.getAndIncrement() * 0x9E3779B9;
+    }
+
+    private static int indexOf(int slot, int mask) {
+        return ((slot ^ (slot >>> 16)) << 1) & mask;
+    }
+
+    public V get(K key) {
+        final Object[] table = this.table;
+        final int mask = table.length - 2;
+        for (int i = indexOf(key.identitySlot(), mask); ; i = (i + 2) & mask) {
+            final Object candidate = table[i];
+            if (candidate == key) {
+                return (V) table[i + 1];
+            }
+            if (candidate == null) {
+                return null;
+            }
+        }
+    }
+
+    private static int sizeOf(Object[] table) {
+        int size = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public int size() {
+        return sizeOf(table);
+    }
+
+    /**
+     * @return a new table with the entries of {@code oldTable} but the ones with {@code removedValue},
+     * and room for one more
+     */
+    private static Object[] copyOf(Object[] oldTable, int size, Object removedValue) {
+        final int capacity = Integer.highestOneBit(size + 1) << 2;
+        final Object[] newTable = new Object[capacity * 2];
+        final int mask = newTable.length - 2;
+        for (int i = 0; i < oldTable.length; i += 2) {
+            final Object key = oldTable[i];
+            if (key != null && oldTable[i + 1] != removedValue) {
+                int index = indexOf(((IdentitySlot) key).identitySlot(), mask);
+                while (newTable[index] != null) {
+                    index = (index + 2) & mask;
+                }
+                newTable[index] = key;
+                newTable[index + 1] = oldTable[i + 1];
+            }
+        }
+        return newTable;
+    }
+
+    public void put(K key, V value) {
+        final int slot = key.identitySlot();
+        for (; ; ) {
+            final Object[] oldTable = table;
+            final int mask = oldTable.length - 2;
+            int index = indexOf(slot, mask);
+            while (oldTable[index] != null && oldTable[index] != key) {
+                index = (index + 2) & mask;
+            }
+            final Object[] newTable;
+            if (oldTable[index] == key) {
+                if (oldTable[index + 1] == value) {
+                    return;
+                }
+                // key already exists, but the value is different
+                newTable = oldTable.clone();
+                newTable[index + 1] = value;
+            } else {
+                final int size = sizeOf(oldTable);
+                if ((size + 1) * 4 <= oldTable.length) {
+                    // key does not exist, but there's room for it
+                    newTable = oldTable.clone();
+                    newTable[index] = key;
+                    newTable[index + 1] = value;
+                } else {
+                    newTable = copyOf(oldTable, size, null);
+                    index = indexOf(slot, newTable.length - 2);
+                    while (newTable[index] != null) {
+                        index = (index + 2) & (newTable.length - 2);
+                    }
+                    newTable[index] = key;
+                    newTable[index + 1] = value;
+                }
+            }
+            if (TABLE_UPDATER.compareAndSet(this, oldTable, newTable)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+
+    public void removeEntriesWithValue(V value) {
+        for (; ; ) {
+            final Object[] oldTable = table;
+            int removed = 0;
+            for (int i = 0; i < oldTable.length; i += 2) {
+                if (oldTable[i] != null && oldTable[i + 1] == value) {
+                    removed++;
+                }
+            }
+            if (removed == 0) {
+                // value not found
+                return;
+            }
+            // open addressing can't just clear the removed slots, without breaking the probe sequences
+            final int size = sizeOf(oldTable) - removed;
+            final Object[] newTable = size == 0 ? EMPTY_TABLE : copyOf(oldTable, size - 1, value);
+            if (TABLE_UPDATER.compareAndSet(this, oldTable, newTable)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package red.hat.puzzles.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up registered ClassLoaders, in random order, from maps holding them strongly or weakly.
+ * <p>
+ * {@link WeakHashMap} is not thread-safe, not even for readers, since {@link WeakHashMap#get} expunges the
+ * stale entries too: it's here as the obvious, single threaded, alternative.
+ * <p>
+ * The setup checks too that the weak map doesn't retain the ClassLoaders of many redeploy cycles.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2)
+public class WeakIdentityLookup {
+
+    private static final int LOOKUPS = 1024;
+
+    private static final class CustomClassLoader extends ClassLoader {
+        // to make the retained memory evident
+        private final byte[] classes = new byte[64 * 1024];
+    }
+
+    @Param({"1", "4", "16"})
+    public int size;
+
+    private ClassLoader[] classLoaders;
+    private SingleWriterCopyOnWriteArrayIdentityMap<ClassLoader, Object> strongMap;
+    private WeakKeyCopyOnWriteArrayIdentityMap<ClassLoader, Object> weakMap;
+    private Map<ClassLoader, Object> weakHashMap;
+    private ClassLoader[] lookups;
+    private int next;
+
+    @Setup
+    public void init() throws InterruptedException {
+        checkRedeployCycles(256);
+        strongMap = new SingleWriterCopyOnWriteArrayIdentityMap<>();
+        weakMap = new WeakKeyCopyOnWriteArrayIdentityMap<>();
+        weakHashMap = new WeakHashMap<>();
+        // strongly reachable from here, to not be collected during the benchmark
+        classLoaders = new ClassLoader[size];
+        for (int i = 0; i < size; i++) {
+            classLoaders[i] = new CustomClassLoader();
+            final Object value = new Object();
+            strongMap.put(classLoaders[i], value);
+            weakMap.put(classLoaders[i], value);
+            weakHashMap.put(classLoaders[i], value);
+        }
+        final SplittableRandom rnd = new SplittableRandom(42);
+        lookups = new ClassLoader[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = classLoaders[rnd.nextInt(size)];
+            if (weakMap.get(lookups[i]) != strongMap.get(lookups[i]) || weakHashMap.get(lookups[i]) != strongMap.get(lookups[i])) {
+                throw new AssertionError("Lookup is broken");
+            }
+        }
+    }
+
+    private ClassLoader nextClassLoader() {
+        final int next = this.next;
+        this.next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    @Benchmark
+    public Object strongMap() {
+        return strongMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object weakMap() {
+        return weakMap.get(nextClassLoader());
+    }
+
+    @Benchmark
+    public Object weakHashMap() {
+        return weakHashMap.get(nextClassLoader());
+    }
+
+    /**
+     * Each redeploy registers a new ClassLoader and drops the previous one, without removing it from the map,
+     * as a leaking application would do: once collected, the next write has to expunge them all.
+     */
+    private static void checkRedeployCycles(int cycles) throws InterruptedException {
+        final WeakKeyCopyOnWriteArrayIdentityMap<ClassLoader, Object> weakMap = new WeakKeyCopyOnWriteArrayIdentityMap<>();
+        for (int i = 0; i < cycles; i++) {
+            weakMap.put(new CustomClassLoader(), Boolean.TRUE);
+        }
+        final ClassLoader lastDeployed = new CustomClassLoader();
+        // the reference handler enqueues the collected keys asynchronously: give it some time
+        for (int attempt = 0; attempt < 50 && weakMap.size() > 1; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+            // any write expunges the stale entries
+            weakMap.put(lastDeployed, Boolean.TRUE);
+        }
+        if (weakMap.size() != 1 || weakMap.get(lastDeployed) != Boolean.TRUE) {
+            throw new AssertionError("The weak map retains " + weakMap.size() + " entries after " + cycles + " redeploys");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package red.hat.puzzles.concurrent;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Same layout of {@link MultiWriterCopyOnWriteArrayIdentityMap}, but keys are weakly referenced: an undeployed
+ * ClassLoader used as key can be collected, despite the map is still reachable.
+ * <p>
+ * Collected keys are reported to a {@link ReferenceQueue}, which is drained by writers only: any write which finds
+ * it not empty copies just the entries whose key is still alive.<br>
+ * Readers still just perform a volatile load and a linear search, with an additional dereference per entry.
+ * <p>
+ * As {@link java.util.WeakHashMap}, values must not strongly reference their keys, or they would never be collected.
+ */
+final class WeakKeyCopyOnWriteArrayIdentityMap<K, V> {
+
+    private static final AtomicReferenceFieldUpdater<WeakKeyCopyOnWriteArrayIdentityMap, Object[]> ENTRIES_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(WeakKeyCopyOnWriteArrayIdentityMap.class, Object[].class, "entries");
+
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+    // no value is removed
+    private static final Object NO_VALUE = new Object();
+
+    private final ReferenceQueue<K> staleKeys = new ReferenceQueue<>();
+
+    private volatile Object[] entries;
+
+    public WeakKeyCopyOnWriteArrayIdentityMap() {
+        // lazySet is enough: no other thread can see this map before it's safely published
+        ENTRIES_UPDATER.lazySet(this, EMPTY_ARRAY);
+    }
+
+    public V get(K key) {
+        final Object[] array = this.entries;
+        for (int i = 0; i < array.length; i += 2) {
+            if (((WeakReference<?>) array[i]).get() == key) {
+                return (V) array[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * It includes the entries whose key has been collected, but not yet expunged.
+     */
+    public int size() {
+        return entries.length / 2;
+    }
+
+    private boolean drainStaleKeys() {
+        boolean stale = false;
+        while (staleKeys.poll() != null) {
+            stale = true;
+        }
+        return stale;
+    }
+
+    /**
+     * @return the live entries of {@code oldEntries}, excluding the ones with {@code value}
+     */
+    private static Object[] liveEntries(Object[] oldEntries, Object value) {
+        final Object[] survivors = new Object[oldEntries.length];
+        int newIdx = 0;
+        for (int i = 0; i < oldEntries.length; i += 2) {
+            if (((WeakReference<?>) oldEntries[i]).get() != null && oldEntries[i + 1] != value) {
+                survivors[newIdx] = oldEntries[i];
+                survivors[newIdx + 1] = oldEntries[i + 1];
+                newIdx += 2;
+            }
+        }
+        if (newIdx == oldEntries.length) {
+            return oldEntries;
+        }
+        return newIdx == 0 ? EMPTY_ARRAY : Arrays.copyOf(survivors, newIdx);
+    }
+
+    public void put(K key, V value) {
+        // a failed CAS can still find stale entries which have been drained already
+        boolean stale = false;
+        for (; ; ) {
+            stale |= drainStaleKeys();
+            final Object[] oldEntries = entries;
+            final Object[] liveEntries = stale ? liveEntries(oldEntries, NO_VALUE) : oldEntries;
+            // verify if the key already exists in the array
+            // or if the value is the same
+            int keyIndex = -1;
+            for (int i = 0; i < liveEntries.length; i += 2) {
+                if (((WeakReference<?>) liveEntries[i]).get() == key) {
+                    if (liveEntries[i + 1] == value && liveEntries == oldEntries) {
+                        return;
+                    }
+                    keyIndex = i;
+                    break;
+                }
+            }
+            final Object[] newEntries;
+            if (keyIndex != -1) {
+                // key already exists, but the value is different
+                newEntries = liveEntries == oldEntries ? oldEntries.clone() : liveEntries;
+                newEntries[keyIndex + 1] = value;
+            } else {
+                // key does not exist, add it
+                newEntries = new Object[liveEntries.length + 2];
+                System.arraycopy(liveEntries, 0, newEntries, 0, liveEntries.length);
+                newEntries[liveEntries.length] = new WeakReference<>(key, staleKeys);
+                newEntries[liveEntries.length + 1] = value;
+            }
+            if (ENTRIES_UPDATER.compareAndSet(this, oldEntries, newEntries)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+
+    public void removeEntriesWithValue(V value) {
+        boolean stale = false;
+        for (; ; ) {
+            stale |= drainStaleKeys();
+            final Object[] oldEntries = entries;
+            boolean found = stale;
+            for (int i = 0; !found && i < oldEntries.length; i += 2) {
+                found = oldEntries[i + 1] == value;
+            }
+            if (!found) {
+                // neither stale entries nor the value
+                return;
+            }
+            final Object[] newEntries = liveEntries(oldEntries, value);
+            if (newEntries == oldEntries || ENTRIES_UPDATER.compareAndSet(this, oldEntries, newEntries)) {
+                return;
+            }
+            // another writer won: retry on its entries
+        }
+    }
+
+}
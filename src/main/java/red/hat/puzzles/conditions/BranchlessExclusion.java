@@ -9,10 +9,10 @@ import java.util.concurrent.TimeUnit;
 @Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
 @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
-@Fork(2)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
 public class BranchlessExclusion {
     private final static char[] RESERVED_CHARS = new char[]{'+', '#', '/', ';', '?', '&', ' ', '!', '=', '$', '|', '*', ':', '~', '-'};
-    private static final int NOT_ASCII = 128;
+    static final int NOT_ASCII = 128;
     private static final boolean[] RESERVED = new boolean[256];
 
     static {
@@ -22,7 +22,7 @@ public class BranchlessExclusion {
         assert !RESERVED[NOT_ASCII];
     }
 
-    private static int transformToASCIIOr128(char c) {
+    static int transformToASCIIOr128(char c) {
         int notAsciiMask = ((127 - c) >> 31);
         return (notAsciiMask & NOT_ASCII) | (~notAsciiMask & c);
     }
@@ -56,14 +56,16 @@ public class BranchlessExclusion {
     @Param({"1", "1024"})
     public int inputs;
 
-    @Param({"32"})
+    @Param({"32", "256", "8192"})
     public int length;
 
     private char[][] validChars;
     private int index;
+    private ReservedCharsValidator validator;
 
     @Setup
     public void setup() {
+        validator = new ReservedCharsValidator(new String(RESERVED_CHARS));
         validChars = new char[inputs][];
         SplittableRandom rnd = new SplittableRandom(0);
         for (int i = 0; i < inputs; i++) {
@@ -122,4 +124,24 @@ public class BranchlessExclusion {
         return true;
     }
 
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public boolean bitmaskValidate() {
+        var validator = this.validator;
+        var input = nextInput();
+        for (var c : input) {
+            if (validator.isReserved(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public boolean vectorizedValidate() {
+        var input = nextInput();
+        return validator.firstInvalid(input, 0, input.length) == -1;
+    }
+
 }
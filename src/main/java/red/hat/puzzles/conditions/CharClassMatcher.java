@@ -0,0 +1,106 @@
+package red.hat.puzzles.conditions;
+
+import java.util.Arrays;
+
+/**
+ * Generalizes the strategies of {@link BranchlessExclusion} to any set of chars, choosing once the cheapest
+ * representation of it:
+ * <ul>
+ *     <li>{@link Kind#RANGE}: contiguous chars, with a single unsigned comparison</li>
+ *     <li>{@link Kind#BITMAPS}: ASCII chars, with two 64-bit bitmaps</li>
+ *     <li>{@link Kind#TABLE}: Latin1 chars, with a {@code boolean[256]}</li>
+ *     <li>{@link Kind#SWITCH}: anything else, with the {@code boolean[256]} for Latin1 chars and a binary search
+ *     on the sorted remaining ones, which is what C2 emits for a sparse {@code lookupswitch}</li>
+ * </ul>
+ * It's a single final class, instead of an implementation per representation, to keep any call site monomorphic:
+ * a given call site usually sees a single kind, and the JIT can prune the others, based on the branch profile.<br>
+ * A switch spun at runtime (eg via hidden classes or {@link java.lang.runtime.SwitchBootstraps}) would need a
+ * {@link java.lang.invoke.MethodHandle} per instance, which cannot be inlined unless the matcher is a constant.
+ */
+public final class CharClassMatcher {
+
+    public enum Kind {
+        RANGE, BITMAPS, TABLE, SWITCH
+    }
+
+    private final Kind kind;
+    private final char first;
+    private final int span;
+    private final long low;
+    private final long high;
+    private final boolean[] table;
+    private final char[] sorted;
+
+    private CharClassMatcher(Kind kind, char first, int span, long low, long high, boolean[] table, char[] sorted) {
+        this.kind = kind;
+        this.first = first;
+        this.span = span;
+        this.low = low;
+        this.high = high;
+        this.table = table;
+        this.sorted = sorted;
+    }
+
+    public static CharClassMatcher compile(String chars) {
+        final char[] sorted = chars.chars().distinct().sorted().collect(StringBuilder::new,
+                StringBuilder::appendCodePoint, StringBuilder::append).toString().toCharArray();
+        if (sorted.length == 0) {
+            return new CharClassMatcher(Kind.BITMAPS, '\0', 0, 0, 0, null, null);
+        }
+        final char first = sorted[0];
+        final char last = sorted[sorted.length - 1];
+        if (last - first + 1 == sorted.length) {
+            return new CharClassMatcher(Kind.RANGE, first, last - first, 0, 0, null, null);
+        }
+        if (last < 128) {
+            long low = 0;
+            long high = 0;
+            for (char c : sorted) {
+                if (c < 64) {
+                    low |= 1L << c;
+                } else {
+                    high |= 1L << c;
+                }
+            }
+            return new CharClassMatcher(Kind.BITMAPS, '\0', 0, low, high, null, null);
+        }
+        final boolean[] table = new boolean[256];
+        int latin1 = 0;
+        for (; latin1 < sorted.length && sorted[latin1] < 256; latin1++) {
+            table[sorted[latin1]] = true;
+        }
+        if (latin1 == sorted.length) {
+            return new CharClassMatcher(Kind.TABLE, '\0', 0, 0, 0, table, null);
+        }
+        return new CharClassMatcher(Kind.SWITCH, '\0', 0, 0, 0, table, Arrays.copyOfRange(sorted, latin1, sorted.length));
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public boolean matches(char c) {
+        // identity checks, instead of an enum switch, save loading the synthetic ordinal mapping
+        final Kind kind = this.kind;
+        if (kind == Kind.RANGE) {
+            return Integer.compareUnsigned(c - first, span) <= 0;
+        }
+        if (kind == Kind.BITMAPS) {
+            // Java shifts just use the lowest 6 bits
+            return c < 64 ? ((low >>> c) & 1) != 0 : c < 128 && ((high >>> c) & 1) != 0;
+        }
+        if (kind == Kind.TABLE) {
+            // 0xFF helps the JIT to skip the bound check on table
+            return c < 256 && table[c & 0xFF];
+        }
+        if (c < 256) {
+            return table[c];
+        }
+        return Arrays.binarySearch(sorted, c) >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CharClassMatcher{" + kind + '}';
+    }
+}
@@ -0,0 +1,156 @@
+package red.hat.puzzles.conditions;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting the chars of a mostly ASCII input which belong to a set, using:
+ * <ul>
+ *     <li>{@code compiled}: {@link CharClassMatcher}</li>
+ *     <li>{@code indexOf}: {@link String#indexOf(int)} on the set</li>
+ *     <li>{@code bitSet}: a {@link BitSet} of the set</li>
+ *     <li>{@code branchless}: the {@link BranchlessExclusion#branchlessValidateLiteral(char)} baseline, ie a
+ *     {@code boolean[256]} indexed without bound checks by ASCII chars, with any other char mapped to the 128 slot,
+ *     which is set (and confirmed with {@link String#indexOf(int)}) only if the set contains non-ASCII chars</li>
+ *     <li>{@code loop}: the {@link BranchlessExclusion#loopValidateLiteral(char)} baseline, ie a loop over the set</li>
+ * </ul>
+ * The hand-written switch of {@link BranchlessExclusion#switchValidateLiteral(char)} exists only for its own set:
+ * {@code compiled} is its generalization, with the {@link CharClassMatcher.Kind#SWITCH} kind.<br>
+ * With {@code unicode} the set can contain any char, forcing the {@link CharClassMatcher.Kind#SWITCH} kind,
+ * unless it's a single char, which is always a {@link CharClassMatcher.Kind#RANGE}.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+public class CharClassMatching {
+
+    private static final String ASCII_CANDIDATES = " !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Param({"1", "4", "15", "40"})
+    public int setSize;
+
+    @Param({"false", "true"})
+    public boolean unicode;
+
+    @Param({"1024"})
+    public int length;
+
+    private String set;
+    private CharClassMatcher matcher;
+    private BitSet bitSet;
+    private boolean[] table;
+    private String nonAscii;
+    private char[] chars;
+    private char[] input;
+
+    @Setup
+    public void setup() {
+        final SplittableRandom rnd = new SplittableRandom(0);
+        final StringBuilder set = new StringBuilder(setSize);
+        while (set.length() < setSize) {
+            final char c = unicode && (set.length() & 3) == 3 ?
+                    (char) rnd.nextInt(256, Character.MAX_VALUE + 1) :
+                    ASCII_CANDIDATES.charAt(rnd.nextInt(ASCII_CANDIDATES.length()));
+            if (set.indexOf(String.valueOf(c)) < 0) {
+                set.append(c);
+            }
+        }
+        this.set = set.toString();
+        matcher = CharClassMatcher.compile(this.set);
+        bitSet = new BitSet();
+        this.set.chars().forEach(bitSet::set);
+        table = new boolean[256];
+        final StringBuilder nonAscii = new StringBuilder();
+        for (int i = 0; i < setSize; i++) {
+            final char c = this.set.charAt(i);
+            if (c < 128) {
+                table[c] = true;
+            } else {
+                table[BranchlessExclusion.NOT_ASCII] = true;
+                nonAscii.append(c);
+            }
+        }
+        this.nonAscii = nonAscii.toString();
+        chars = this.set.toCharArray();
+        input = new char[length];
+        for (int i = 0; i < length; i++) {
+            // mostly ASCII, with some char of the set too
+            input[i] = rnd.nextInt(10) == 0 ?
+                    (char) rnd.nextInt(Character.MAX_VALUE + 1) :
+                    (rnd.nextInt(10) == 0 ? this.set.charAt(rnd.nextInt(setSize)) : (char) rnd.nextInt(128));
+        }
+        final int matches = compiled();
+        if (matches != indexOf() || matches != bitSet() || matches != branchless() || matches != loop()) {
+            throw new AssertionError("Matching is broken for " + matcher);
+        }
+    }
+
+    @Benchmark
+    public int compiled() {
+        final CharClassMatcher matcher = this.matcher;
+        int matches = 0;
+        for (char c : input) {
+            if (matcher.matches(c)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int indexOf() {
+        final String set = this.set;
+        int matches = 0;
+        for (char c : input) {
+            if (set.indexOf(c) >= 0) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int bitSet() {
+        final BitSet bitSet = this.bitSet;
+        int matches = 0;
+        for (char c : input) {
+            if (bitSet.get(c)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int branchless() {
+        final boolean[] table = this.table;
+        int matches = 0;
+        for (char c : input) {
+            final int asciiOr128 = BranchlessExclusion.transformToASCIIOr128(c);
+            if (table[asciiOr128 & 0xFF] && (asciiOr128 != BranchlessExclusion.NOT_ASCII || nonAscii.indexOf(c) >= 0)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int loop() {
+        final char[] chars = this.chars;
+        int matches = 0;
+        for (char c : input) {
+            for (char candidate : chars) {
+                if (c == candidate) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+}
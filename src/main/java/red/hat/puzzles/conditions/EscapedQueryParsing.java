@@ -0,0 +1,106 @@
+package red.hat.puzzles.conditions;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escaped query parameters for {@link StateMachineParsing}: the unescaped ones shouldn't pay anything
+ * for the escaped ones to be decoded in the {@link PercentDecoder} scratch buffer.
+ * <p>
+ * Run with {@code -prof gc} to check that no allocation happens, regardless the escape density.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class EscapedQueryParsing {
+
+    private static final char[] ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    // reserved or non-ASCII (as UTF-8) content which would need to be escaped
+    private static final String[] ESCAPES = {"+", "%20", "%26", "%3D", "%2F", "%C3%A9", "%E2%82%AC"};
+
+    @Param({"10"})
+    public int params;
+
+    // including name, '=' and value, before escaping
+    @Param({"32"})
+    public int paramLength;
+
+    // percentage of the name or value chars to be escaped
+    @Param({"0", "5", "50"})
+    public int escapeDensity;
+
+    private String uri;
+    private StateMachineParsing.ParameterConsumer consumer;
+    private PercentDecoder decoder;
+
+    @Setup
+    public void init(Blackhole bh) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        StringBuilder builder = new StringBuilder("/updates?");
+        final int nameLength = Math.max(1, paramLength / 4);
+        for (int p = 0; p < params; p++) {
+            if (p > 0) {
+                builder.append('&');
+            }
+            for (int i = 0; i < paramLength; i++) {
+                if (i == nameLength) {
+                    builder.append('=');
+                } else if (rnd.nextInt(100) < escapeDensity) {
+                    builder.append(ESCAPES[rnd.nextInt(ESCAPES.length)]);
+                } else {
+                    builder.append(ALPHANUMERIC[rnd.nextInt(ALPHANUMERIC.length)]);
+                }
+            }
+        }
+        uri = builder.toString();
+        decoder = new PercentDecoder(paramLength);
+        consumer = new StateMachineParsing.ParameterConsumer() {
+            @Override
+            public void accept(String s, int startName, int endName, int valueStart, int valueEnd) {
+                bh.consume(s);
+                bh.consume(endName - startName);
+                bh.consume(valueEnd - valueStart);
+            }
+
+            @Override
+            public void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd) {
+                bh.consume(decoded);
+                bh.consume(endName);
+                bh.consume(valueEnd - valueStart);
+            }
+        };
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void switchLoop() {
+        StateMachineParsing.decodeParams(uri, true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void swar() {
+        StateMachineParsing.decodeParamsSwar(uri, true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void urlDecoder(Blackhole bh) {
+        // what most would do: split and decode each name and value into a String
+        final String uri = this.uri;
+        final int queryStart = uri.indexOf('?') + 1;
+        for (String param : uri.substring(queryStart).split("&")) {
+            final int equals = param.indexOf('=');
+            bh.consume(URLDecoder.decode(param.substring(0, equals), StandardCharsets.UTF_8));
+            bh.consume(URLDecoder.decode(param.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package red.hat.puzzles.conditions;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parameter-heavy URIs for {@link StateMachineParsing}: the longer are the names and values,
+ * the more {@link SwarScanner} should pay off vs the switch loop.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class LongQueryParsing {
+
+    private static final char[] ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    @Param({"5", "50"})
+    public int params;
+
+    // including name, '=' and value
+    @Param({"16", "64"})
+    public int paramLength;
+
+    private String uri;
+    private StateMachineParsing.ParameterConsumer consumer;
+    private PercentDecoder decoder;
+
+    @Setup
+    public void init(Blackhole bh) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        StringBuilder builder = new StringBuilder("/updates?");
+        final int nameLength = Math.max(1, paramLength / 4);
+        for (int p = 0; p < params; p++) {
+            if (p > 0) {
+                builder.append('&');
+            }
+            for (int i = 0; i < paramLength; i++) {
+                builder.append(i == nameLength ? '=' : ALPHANUMERIC[rnd.nextInt(ALPHANUMERIC.length)]);
+            }
+        }
+        uri = builder.toString();
+        decoder = new PercentDecoder(paramLength);
+        consumer = new StateMachineParsing.ParameterConsumer() {
+            @Override
+            public void accept(String s, int startName, int endName, int valueStart, int valueEnd) {
+                bh.consume(s);
+                bh.consume(endName - startName);
+                bh.consume(valueEnd - valueStart);
+            }
+
+            @Override
+            public void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd) {
+                bh.consume(decoded);
+                bh.consume(endName);
+                bh.consume(valueEnd - valueStart);
+            }
+        };
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void switchLoop() {
+        StateMachineParsing.decodeParams(uri, true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void swar() {
+        StateMachineParsing.decodeParamsSwar(uri, true, consumer, decoder, 1024, false);
+    }
+}
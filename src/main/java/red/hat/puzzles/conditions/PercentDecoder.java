@@ -0,0 +1,94 @@
+package red.hat.puzzles.conditions;
+
+/**
+ * Percent (and {@code '+'}) decoder writing UTF-8 bytes into a single reusable scratch buffer.
+ * <p>
+ * It's not thread-safe and the decoded content is valid only till the next {@link #decode} call.
+ */
+final class PercentDecoder {
+
+    private byte[] scratch;
+
+    PercentDecoder(int initialCapacity) {
+        this.scratch = new byte[initialCapacity];
+    }
+
+    byte[] buffer() {
+        return scratch;
+    }
+
+    private byte[] ensureCapacity(int capacity) {
+        byte[] scratch = this.scratch;
+        if (scratch.length < capacity) {
+            byte[] newScratch = new byte[Math.max(capacity, scratch.length * 2)];
+            System.arraycopy(scratch, 0, newScratch, 0, scratch.length);
+            this.scratch = newScratch;
+            return newScratch;
+        }
+        return scratch;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        // lower case it: it won't turn any non-letter into a letter in the range we care
+        final int lowerCase = c | 0x20;
+        if (lowerCase >= 'a' && lowerCase <= 'f') {
+            return lowerCase - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes {@code s[from, to)} into the scratch buffer starting at {@code offset}.
+     *
+     * @return the end offset (exclusive) of the decoded bytes
+     * @throws IllegalArgumentException if there is a truncated or invalid escape sequence
+     */
+    int decode(String s, int from, int to, int offset, boolean isPath) {
+        // 3 UTF-8 bytes per char is the worst case (a surrogate pair is 2 chars for 4 bytes)
+        final byte[] out = ensureCapacity(offset + (to - from) * 3);
+        int o = offset;
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= to) {
+                    throw new IllegalArgumentException("truncated escape sequence at index " + i + " of " + s);
+                }
+                final int hi = hexValue(s.charAt(i + 1));
+                final int lo = hexValue(s.charAt(i + 2));
+                if ((hi | lo) < 0) {
+                    throw new IllegalArgumentException("invalid escape sequence at index " + i + " of " + s);
+                }
+                out[o++] = (byte) (hi << 4 | lo);
+                i += 2;
+            } else if (c == '+' && !isPath) {
+                out[o++] = ' ';
+            } else if (c < 0x80) {
+                out[o++] = (byte) c;
+            } else if (c < 0x800) {
+                out[o++] = (byte) (0xC0 | c >> 6);
+                out[o++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                final char low;
+                if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(low = s.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, low);
+                    out[o++] = (byte) (0xF0 | codePoint >> 18);
+                    out[o++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    out[o++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    out[o++] = (byte) (0x80 | codePoint & 0x3F);
+                    i++;
+                } else {
+                    // malformed: same replacement of the JDK UTF-8 encoder
+                    out[o++] = '?';
+                }
+            } else {
+                out[o++] = (byte) (0xE0 | c >> 12);
+                out[o++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[o++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return o;
+    }
+}
@@ -0,0 +1,183 @@
+package red.hat.puzzles.conditions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-valued query parameters map which just records the offsets reported by
+ * {@link StateMachineParsing.ParameterConsumer} into a flat {@code int[]}, and materializes
+ * names and values only when asked to.
+ * <p>
+ * Escaped parameters are decoded by the parser in a scratch buffer which doesn't survive the callback:
+ * their bytes are copied into a reusable byte arena and their offsets refer to it.
+ * <p>
+ * It is meant to be {@link #reset} and reused for each URI, from a single thread.
+ */
+final class QueryParameters implements StateMachineParsing.ParameterConsumer {
+
+    private static final int SOURCE = 0;
+    private static final int NAME_START = 1;
+    private static final int NAME_END = 2;
+    private static final int VALUE_START = 3;
+    private static final int VALUE_END = 4;
+    private static final int FIELDS = 5;
+
+    private static final int FROM_URI = 0;
+    private static final int FROM_DECODED = 1;
+
+    private String uri;
+    private int[] offsets;
+    private int size;
+    private byte[] decoded;
+    private int decodedSize;
+
+    QueryParameters(int initialCapacity) {
+        offsets = new int[initialCapacity * FIELDS];
+        decoded = new byte[0];
+    }
+
+    void reset() {
+        uri = null;
+        size = 0;
+        decodedSize = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int[] nextEntry() {
+        int[] offsets = this.offsets;
+        final int required = (size + 1) * FIELDS;
+        if (offsets.length < required) {
+            int[] newOffsets = new int[Math.max(required, offsets.length * 2)];
+            System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+            this.offsets = newOffsets;
+            return newOffsets;
+        }
+        return offsets;
+    }
+
+    @Override
+    public void accept(String s, int startName, int endName, int valueStart, int valueEnd) {
+        assert uri == null || uri == s : "missing reset";
+        uri = s;
+        final int[] offsets = nextEntry();
+        final int entry = size * FIELDS;
+        offsets[entry + SOURCE] = FROM_URI;
+        offsets[entry + NAME_START] = startName;
+        offsets[entry + NAME_END] = endName;
+        // no value is reported with valueStart past valueEnd: it's just an empty value
+        offsets[entry + VALUE_START] = Math.min(valueStart, valueEnd);
+        offsets[entry + VALUE_END] = valueEnd;
+        size++;
+    }
+
+    @Override
+    public void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd) {
+        byte[] arena = this.decoded;
+        final int start = decodedSize;
+        if (arena.length < start + valueEnd) {
+            byte[] newArena = new byte[Math.max(start + valueEnd, arena.length * 2)];
+            System.arraycopy(arena, 0, newArena, 0, start);
+            this.decoded = newArena;
+            arena = newArena;
+        }
+        System.arraycopy(decoded, 0, arena, start, valueEnd);
+        decodedSize = start + valueEnd;
+        final int[] offsets = nextEntry();
+        final int entry = size * FIELDS;
+        offsets[entry + SOURCE] = FROM_DECODED;
+        offsets[entry + NAME_START] = start;
+        offsets[entry + NAME_END] = start + endName;
+        // same as accept: no value is just an empty value
+        offsets[entry + VALUE_START] = start + Math.min(valueStart, valueEnd);
+        offsets[entry + VALUE_END] = start + valueEnd;
+        size++;
+    }
+
+    private boolean nameEquals(int entry, String name) {
+        final int[] offsets = this.offsets;
+        final int nameStart = offsets[entry + NAME_START];
+        final int nameLength = offsets[entry + NAME_END] - nameStart;
+        if (offsets[entry + SOURCE] == FROM_URI) {
+            return nameLength == name.length() && uri.regionMatches(nameStart, name, 0, nameLength);
+        }
+        if (nameLength < name.length()) {
+            // UTF-8 can only make it longer
+            return false;
+        }
+        final byte[] decoded = this.decoded;
+        if (nameLength == name.length()) {
+            // likely ASCII: check it without decoding
+            boolean ascii = true;
+            for (int i = 0; i < nameLength; i++) {
+                final char c = name.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (decoded[nameStart + i] != c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        return name.equals(new String(decoded, nameStart, nameLength, StandardCharsets.UTF_8));
+    }
+
+    private String stringOf(int entry, int startField, int endField) {
+        final int[] offsets = this.offsets;
+        final int start = offsets[entry + startField];
+        final int end = offsets[entry + endField];
+        if (offsets[entry + SOURCE] == FROM_URI) {
+            return uri.substring(start, end);
+        }
+        return new String(decoded, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    String name(int index) {
+        return stringOf(index * FIELDS, NAME_START, NAME_END);
+    }
+
+    String value(int index) {
+        return stringOf(index * FIELDS, VALUE_START, VALUE_END);
+    }
+
+    int indexOf(String name, int fromIndex) {
+        for (int i = fromIndex; i < size; i++) {
+            if (nameEquals(i * FIELDS, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    boolean contains(String name) {
+        return indexOf(name, 0) != -1;
+    }
+
+    /**
+     * @return the first value of {@code name} or {@code null} if missing
+     */
+    String get(String name) {
+        final int index = indexOf(name, 0);
+        return index == -1 ? null : value(index);
+    }
+
+    List<String> getAll(String name) {
+        int index = indexOf(name, 0);
+        if (index == -1) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(2);
+        do {
+            values.add(value(index));
+            index = indexOf(name, index + 1);
+        } while (index != -1);
+        return values;
+    }
+}
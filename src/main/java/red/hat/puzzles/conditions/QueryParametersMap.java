@@ -0,0 +1,119 @@
+package red.hat.puzzles.conditions;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storing the decoded query parameters in {@link QueryParameters} vs the usual {@code HashMap<String, List<String>>}.
+ * <p>
+ * Run with {@code -prof gc} to compare the bytes allocated per op too.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class QueryParametersMap {
+
+    private static final char[] ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    // with more params than names, some will be multi-valued
+    private static final int NAMES = 4;
+
+    @Param({"1", "5", "50"})
+    public int params;
+
+    @Param({"8"})
+    public int valueLength;
+
+    private String uri;
+    private String lookupName;
+    private PercentDecoder decoder;
+    private QueryParameters queryParameters;
+    private Map<String, List<String>> hashMap;
+    private StateMachineParsing.ParameterConsumer hashMapConsumer;
+
+    @Setup
+    public void init() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        StringBuilder builder = new StringBuilder("/updates?");
+        for (int p = 0; p < params; p++) {
+            if (p > 0) {
+                builder.append('&');
+            }
+            builder.append("name").append(p % NAMES).append('=');
+            for (int i = 0; i < valueLength; i++) {
+                builder.append(ALPHANUMERIC[rnd.nextInt(ALPHANUMERIC.length)]);
+            }
+        }
+        uri = builder.toString();
+        // it's always the last one added
+        lookupName = "name" + ((params - 1) % NAMES);
+        decoder = new PercentDecoder(valueLength);
+        queryParameters = new QueryParameters(params);
+        hashMapConsumer = new StateMachineParsing.ParameterConsumer() {
+            @Override
+            public void accept(String s, int startName, int endName, int valueStart, int valueEnd) {
+                final String value = valueStart > valueEnd ? "" : s.substring(valueStart, valueEnd);
+                hashMap.computeIfAbsent(s.substring(startName, endName), name -> new ArrayList<>(1)).add(value);
+            }
+
+            @Override
+            public void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd) {
+                final String value = valueStart > valueEnd ? "" : new String(decoded, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+                hashMap.computeIfAbsent(new String(decoded, 0, endName, StandardCharsets.UTF_8), name -> new ArrayList<>(1)).add(value);
+            }
+        };
+    }
+
+    private QueryParameters parseQueryParameters() {
+        final QueryParameters queryParameters = this.queryParameters;
+        queryParameters.reset();
+        StateMachineParsing.decodeParams(uri, true, queryParameters, decoder, 1024, false);
+        return queryParameters;
+    }
+
+    private Map<String, List<String>> parseHashMap() {
+        // a new one per request, as usual
+        hashMap = new HashMap<>();
+        StateMachineParsing.decodeParams(uri, true, hashMapConsumer, decoder, 1024, false);
+        return hashMap;
+    }
+
+    @Benchmark
+    public int offsetsParse() {
+        return parseQueryParameters().size();
+    }
+
+    @Benchmark
+    public int hashMapParse() {
+        return parseHashMap().size();
+    }
+
+    @Benchmark
+    public String offsetsGet() {
+        return parseQueryParameters().get(lookupName);
+    }
+
+    @Benchmark
+    public String hashMapGet() {
+        return parseHashMap().get(lookupName).get(0);
+    }
+
+    @Benchmark
+    public List<String> offsetsGetAll() {
+        return parseQueryParameters().getAll(lookupName);
+    }
+
+    @Benchmark
+    public List<String> hashMapGetAll() {
+        return parseHashMap().get(lookupName);
+    }
+}
@@ -0,0 +1,182 @@
+package red.hat.puzzles.conditions;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Objects;
+
+/**
+ * Bulk version of {@link BranchlessExclusion} for any set of reserved ASCII chars: non-ASCII is always valid.
+ * <p>
+ * Each step classifies a whole vector of chars with the nibbles lookup made popular by {@code pshufb}:
+ * <ul>
+ *     <li>the low nibble of each char selects, from a 16 entries table, the bitmap of its reserved high nibbles</li>
+ *     <li>the high nibble selects its own bit, from another table, which is never set for non-ASCII</li>
+ * </ul>
+ * If the vectors are too narrow to hold a 16 entries table, it falls back to check a 128-bit bitmap one char at time.
+ * <p>
+ * Using the Vector API requires {@code --add-modules jdk.incubator.vector}.<br>
+ * It's not thread-safe, because of the scratch buffer used to copy the String content in bulk.
+ */
+final class ReservedCharsValidator {
+
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+    // chars are narrowed into these
+    private static final VectorSpecies<Byte> NARROW_BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(CHARS.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final boolean VECTORIZED_CHARS = NARROW_BYTES.length() >= 16;
+    private static final boolean VECTORIZED_BYTES = BYTES.length() >= 16;
+    // not reserved by construction, see the class doc
+    private static final short NOT_ASCII = 0x80;
+    private static final int CHUNK_SIZE = CHARS.length() * 64;
+
+    private final long reservedLow;
+    private final long reservedHigh;
+    private final ByteVector narrowLowNibbles;
+    private final ByteVector narrowHighNibbles;
+    private final ByteVector lowNibbles;
+    private final ByteVector highNibbles;
+    private final char[] chunk;
+
+    ReservedCharsValidator(String reservedChars) {
+        long reservedLow = 0;
+        long reservedHigh = 0;
+        // for each low nibble, the bitmap of the high nibbles which make it reserved
+        final byte[] lowNibbles = new byte[16];
+        for (int i = 0; i < reservedChars.length(); i++) {
+            final char c = reservedChars.charAt(i);
+            if (c > 127) {
+                throw new IllegalArgumentException("Only ASCII chars can be reserved: " + c);
+            }
+            if (c < 64) {
+                reservedLow |= 1L << c;
+            } else {
+                reservedHigh |= 1L << c;
+            }
+            lowNibbles[c & 0x0F] |= (byte) (1 << (c >>> 4));
+        }
+        final byte[] highNibbles = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            highNibbles[i] = (byte) (1 << i);
+        }
+        this.reservedLow = reservedLow;
+        this.reservedHigh = reservedHigh;
+        this.narrowLowNibbles = lookupTable(NARROW_BYTES, lowNibbles);
+        this.narrowHighNibbles = lookupTable(NARROW_BYTES, highNibbles);
+        this.lowNibbles = lookupTable(BYTES, lowNibbles);
+        this.highNibbles = lookupTable(BYTES, highNibbles);
+        this.chunk = new char[CHUNK_SIZE];
+    }
+
+    private static ByteVector lookupTable(VectorSpecies<Byte> species, byte[] table) {
+        final byte[] lanes = new byte[species.length()];
+        for (int i = 0; i < lanes.length; i++) {
+            // just the first 16 lanes can be selected, but it's not worth to special case it
+            lanes[i] = table[i & 0x0F];
+        }
+        return ByteVector.fromArray(species, lanes, 0);
+    }
+
+    /**
+     * Branchless, given that Java shifts just use the lowest 6 bits.
+     */
+    boolean isReserved(char c) {
+        final long reserved = c < 64 ? reservedLow : reservedHigh;
+        return c < 128 & ((reserved >>> c) & 1) != 0;
+    }
+
+    private static VectorMask<Byte> reserved(ByteVector bytes, ByteVector lowNibbles, ByteVector highNibbles) {
+        final ByteVector lowNibble = bytes.and((byte) 0x0F);
+        final ByteVector highNibble = bytes.lanewise(VectorOperators.LSHR, 4);
+        return lowNibble.selectFrom(lowNibbles)
+                .and(highNibble.selectFrom(highNibbles))
+                .compare(VectorOperators.NE, (byte) 0);
+    }
+
+    /**
+     * @return the index of the first reserved char in {@code [from, to)} or {@code -1} if none
+     */
+    int firstInvalid(char[] chars, int from, int to) {
+        Objects.checkFromToIndex(from, to, chars.length);
+        int i = from;
+        if (VECTORIZED_CHARS) {
+            final int lanes = CHARS.length();
+            for (; i + lanes <= to; i += lanes) {
+                final int reserved = firstReserved(ShortVector.fromCharArray(CHARS, chars, i));
+                if (reserved != lanes) {
+                    return i + reserved;
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (isReserved(chars[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int firstReserved(ShortVector chars) {
+        final ShortVector ascii = chars.blend(NOT_ASCII, chars.compare(VectorOperators.UNSIGNED_GT, (short) 0x7F));
+        final ByteVector bytes = (ByteVector) ascii.convertShape(VectorOperators.S2B, NARROW_BYTES, 0);
+        return reserved(bytes, narrowLowNibbles, narrowHighNibbles).firstTrue();
+    }
+
+    /**
+     * Bytes with the high bit set, eg UTF-8 encoded, are not ASCII hence valid.
+     *
+     * @return the index of the first reserved byte in {@code [from, to)} or {@code -1} if none
+     */
+    int firstInvalid(byte[] bytes, int from, int to) {
+        Objects.checkFromToIndex(from, to, bytes.length);
+        int i = from;
+        if (VECTORIZED_BYTES) {
+            final int lanes = BYTES.length();
+            for (; i + lanes <= to; i += lanes) {
+                final int reserved = reserved(ByteVector.fromArray(BYTES, bytes, i), lowNibbles, highNibbles).firstTrue();
+                if (reserved != lanes) {
+                    return i + reserved;
+                }
+            }
+        }
+        for (; i < to; i++) {
+            final byte b = bytes[i];
+            if (b >= 0 && isReserved((char) b)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first reserved char in {@code [from, to)} or {@code -1} if none
+     */
+    int firstInvalid(String s, int from, int to) {
+        Objects.checkFromToIndex(from, to, s.length());
+        int i = from;
+        if (VECTORIZED_CHARS) {
+            final char[] chunk = this.chunk;
+            final int lanes = CHARS.length();
+            while (i + lanes <= to) {
+                // we cannot access the String content directly: copy it in bulk
+                final int chunkLength = Math.min(chunk.length, to - i) / lanes * lanes;
+                s.getChars(i, i + chunkLength, chunk, 0);
+                final int reserved = firstInvalid(chunk, 0, chunkLength);
+                if (reserved != -1) {
+                    return i + reserved;
+                }
+                i += chunkLength;
+            }
+        }
+        for (; i < to; i++) {
+            if (isReserved(s.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
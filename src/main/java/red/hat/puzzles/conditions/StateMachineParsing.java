@@ -3,6 +3,10 @@ package red.hat.puzzles.conditions;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 @State(Scope.Benchmark)
@@ -12,17 +16,44 @@ import java.util.concurrent.TimeUnit;
 @BenchmarkMode(Mode.AverageTime)
 public class StateMachineParsing {
 
-    private interface ParameterConsumer {
+    /**
+     * A parameter without any {@code =} is reported with {@code valueStart == valueEnd + 1}, while an empty
+     * value (eg {@code name=}) with {@code valueStart == valueEnd}.
+     */
+    interface ParameterConsumer {
         void accept(String s, int startName, int endName, int valueStart, int valueEnd);
+
+        /**
+         * Called instead of {@link #accept} if the name or the value is escaped: both are percent decoded
+         * as UTF-8 bytes into {@code decoded}, from {@code 0}, which is valid only for the duration of this call.
+         */
+        void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd);
+    }
+
+    /**
+     * Same as {@link ParameterConsumer} but with offsets into the (undecoded) ASCII bytes of the URI.
+     */
+    private interface SegmentParameterConsumer {
+        void accept(MemorySegment s, long startName, long endName, long valueStart, long valueEnd);
     }
 
     @Param({"/updates?queries=5", "/updates?queries=5&foo=bar&cat=dog"})
     private String toParse;
     private ParameterConsumer consumer;
+    private PercentDecoder decoder;
+    private SegmentParameterConsumer segmentConsumer;
+    private byte[] toParseBytes;
+    private MemorySegment heapToParse;
+    private MemorySegment directToParse;
 
-    private static void decodeParams(String uri, boolean hasPath, ParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+    private static final long EQUALS = SwarScanner.broadcast('=');
+    private static final long AMPERSAND = SwarScanner.broadcast('&');
+    private static final long SEMICOLON = SwarScanner.broadcast(';');
+    private static final long HASH = SwarScanner.broadcast('#');
+
+    static void decodeParams(String uri, boolean hasPath, ParameterConsumer parameters, PercentDecoder decoder, int paramsLimit, boolean semicolonIsNormalChar) {
         int pathEndIdx = hasPath ? findPathEndIndex(uri) : 0;
-        decodeParams(uri, pathEndIdx, parameters, paramsLimit, semicolonIsNormalChar);
+        decodeParams(uri, pathEndIdx, parameters, decoder, paramsLimit, semicolonIsNormalChar);
     }
 
     private static int findPathEndIndex(String uri) {
@@ -36,7 +67,7 @@ public class StateMachineParsing {
         return len;
     }
 
-    private static void decodeParams(String uri, int from, ParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+    private static void decodeParams(String uri, int from, ParameterConsumer parameters, PercentDecoder decoder, int paramsLimit, boolean semicolonIsNormalChar) {
         int len = uri.length();
         if (from >= len) {
             return;
@@ -44,10 +75,10 @@ public class StateMachineParsing {
         if (uri.charAt(from) == '?') {
             from++;
         }
-        decodeParams0(uri, from, parameters, paramsLimit, semicolonIsNormalChar);
+        decodeParams0(uri, from, parameters, decoder, paramsLimit, semicolonIsNormalChar);
     }
 
-    private static void decodeParams0(String s, int from, ParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+    private static void decodeParams0(String s, int from, ParameterConsumer parameters, PercentDecoder decoder, int paramsLimit, boolean semicolonIsNormalChar) {
         int nameStart = from;
         int len = s.length();
         for (int p = 0; p < paramsLimit; p++) {
@@ -109,7 +140,76 @@ public class StateMachineParsing {
             } else {
                 valueStart = -1;
             }
-            addParam(s, nameStart, valueStart, valueEndExclusive, parameters);
+            addParam(s, nameStart, valueStart, valueEndExclusive, parameters, decoder);
+            if (valueEndExclusive == len) {
+                break;
+            }
+            nameStart = valueEndExclusive + 1;
+        }
+    }
+
+    static void decodeParamsSwar(String uri, boolean hasPath, ParameterConsumer parameters, PercentDecoder decoder, int paramsLimit, boolean semicolonIsNormalChar) {
+        int from = hasPath ? findPathEndIndex(uri) : 0;
+        if (from >= uri.length()) {
+            return;
+        }
+        if (uri.charAt(from) == '?') {
+            from++;
+        }
+        decodeParams0Swar(uri, from, parameters, decoder, paramsLimit, semicolonIsNormalChar);
+    }
+
+    /**
+     * Same as {@link #decodeParams0(String, int, ParameterConsumer, PercentDecoder, int, boolean)}, but searching the delimiters
+     * 8 chars at time via {@link SwarScanner}.
+     */
+    private static void decodeParams0Swar(String s, int from, ParameterConsumer parameters, PercentDecoder decoder, int paramsLimit, boolean semicolonIsNormalChar) {
+        // searching '&' twice is the same as not searching ';' at all
+        final long semicolon = semicolonIsNormalChar ? AMPERSAND : SEMICOLON;
+        int nameStart = from;
+        int len = s.length();
+        for (int p = 0; p < paramsLimit; p++) {
+            int valueEndExclusive = -1;
+            int indexOfEquals = -1;
+            int delimiter = SwarScanner.findFirstOf(s, nameStart, len, EQUALS, AMPERSAND, semicolon, HASH);
+            if (delimiter != -1) {
+                switch (s.charAt(delimiter)) {
+                    case '=':
+                        indexOfEquals = delimiter;
+                        break;
+                    case '#':
+                        len = delimiter;
+                        break;
+                    default:
+                        valueEndExclusive = delimiter;
+                }
+            }
+            int nextValueStart = -1;
+            if (indexOfEquals != -1) {
+                nextValueStart = indexOfEquals + 1;
+                delimiter = SwarScanner.findFirstOf(s, nextValueStart, len, AMPERSAND, semicolon, HASH, HASH);
+                if (delimiter != -1) {
+                    if (s.charAt(delimiter) == '#') {
+                        len = delimiter;
+                    } else {
+                        valueEndExclusive = delimiter;
+                    }
+                }
+            }
+            if (valueEndExclusive == -1) {
+                valueEndExclusive = len;
+            }
+            int valueStart;
+            if (nextValueStart != -1) {
+                valueStart = nextValueStart;
+                if (valueStart == nameStart + 1) {
+                    nameStart = skipIf(s, valueStart, valueEndExclusive, '=');
+                    valueStart = indexOf(s, nameStart + 1, valueEndExclusive, '=');
+                }
+            } else {
+                valueStart = -1;
+            }
+            addParam(s, nameStart, valueStart, valueEndExclusive, parameters, decoder);
             if (valueEndExclusive == len) {
                 break;
             }
@@ -135,7 +235,150 @@ public class StateMachineParsing {
         return to;
     }
 
-    private static void addParam(String s, int nameStart, int valueStart, int valueEnd, ParameterConsumer parameters) {
+    private static void addParam(String s, int nameStart, int valueStart, int valueEnd, ParameterConsumer parameters, PercentDecoder decoder) {
+        if (nameStart >= valueEnd) {
+            return;
+        }
+        if (valueStart <= nameStart) {
+            valueStart = valueEnd + 1;
+        }
+        final int nameEnd = valueStart - 1;
+        if (findFirstEscaped(s, nameStart, nameEnd, false) == -1 && findFirstEscaped(s, valueStart, valueEnd, false) == -1) {
+            // common case: no escapes, no allocations
+            parameters.accept(s, nameStart, nameEnd, valueStart, valueEnd);
+            return;
+        }
+        final int decodedNameEnd = decoder.decode(s, nameStart, nameEnd, 0, false);
+        if (valueStart > valueEnd) {
+            // no value: same convention of accept
+            parameters.acceptDecoded(decoder.buffer(), decodedNameEnd, decodedNameEnd + 1, decodedNameEnd);
+            return;
+        }
+        final int decodedValueEnd = decoder.decode(s, valueStart, valueEnd, decodedNameEnd, false);
+        parameters.acceptDecoded(decoder.buffer(), decodedNameEnd, decodedNameEnd, decodedValueEnd);
+    }
+
+    private static int findFirstEscaped(String s, int from, int toExcluded, boolean isPath) {
+        for (int i = from; i < toExcluded; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '+' && !isPath) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void decodeParams(MemorySegment uri, boolean hasPath, SegmentParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+        long pathEndIdx = hasPath ? findPathEndIndex(uri) : 0;
+        decodeParams(uri, pathEndIdx, parameters, paramsLimit, semicolonIsNormalChar);
+    }
+
+    private static long findPathEndIndex(MemorySegment uri) {
+        long len = uri.byteSize();
+        for (long i = 0; i < len; i++) {
+            byte c = uri.get(ValueLayout.JAVA_BYTE, i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    private static void decodeParams(MemorySegment uri, long from, SegmentParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+        long len = uri.byteSize();
+        if (from >= len) {
+            return;
+        }
+        if (uri.get(ValueLayout.JAVA_BYTE, from) == '?') {
+            from++;
+        }
+        decodeParams0(uri, from, parameters, paramsLimit, semicolonIsNormalChar);
+    }
+
+    /**
+     * Same as {@link #decodeParams0(String, int, ParameterConsumer, PercentDecoder, int, boolean)}, but reading ASCII straight from
+     * a heap or native segment, e.g. obtained via {@link MemorySegment#ofBuffer} from the receive buffer.
+     */
+    private static void decodeParams0(MemorySegment s, long from, SegmentParameterConsumer parameters, int paramsLimit, boolean semicolonIsNormalChar) {
+        long nameStart = from;
+        long len = s.byteSize();
+        for (int p = 0; p < paramsLimit; p++) {
+            long valueEndExclusive = -1;
+            long indexOfEquals = -1;
+            loop:
+            for (long i = nameStart; i < len; i++) {
+                switch (s.get(ValueLayout.JAVA_BYTE, i)) {
+                    case '=':
+                        indexOfEquals = i;
+                        break loop;
+                    case ';':
+                        if (semicolonIsNormalChar) {
+                            continue;
+                        }
+                        // fall-through
+                    case '&':
+                        valueEndExclusive = i;
+                        break loop;
+                    case '#':
+                        len = i;
+                        break loop;
+                }
+            }
+            long nextValueStart = -1;
+            if (indexOfEquals != -1) {
+                nextValueStart = indexOfEquals + 1;
+                for (long i = nextValueStart; i < len; i++) {
+                    byte ch = s.get(ValueLayout.JAVA_BYTE, i);
+                    if (ch == '&' || (!semicolonIsNormalChar && ch == ';')) {
+                        valueEndExclusive = i;
+                        break;
+                    }
+                    if (ch == '#') {
+                        len = i;
+                        break;
+                    }
+                }
+            }
+            if (valueEndExclusive == -1) {
+                valueEndExclusive = len;
+            }
+            long valueStart;
+            if (nextValueStart != -1) {
+                valueStart = nextValueStart;
+                if (valueStart == nameStart + 1) {
+                    nameStart = skipIf(s, valueStart, valueEndExclusive, '=');
+                    valueStart = indexOf(s, nameStart + 1, valueEndExclusive, '=');
+                }
+            } else {
+                valueStart = -1;
+            }
+            addParam(s, nameStart, valueStart, valueEndExclusive, parameters);
+            if (valueEndExclusive == len) {
+                break;
+            }
+            nameStart = valueEndExclusive + 1;
+        }
+    }
+
+    private static long indexOf(MemorySegment s, long from, long to, int ch) {
+        for (long i = from; i < to; i++) {
+            if (s.get(ValueLayout.JAVA_BYTE, i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long skipIf(MemorySegment s, long from, long to, int ch) {
+        for (long i = from; i < to; i++) {
+            if (s.get(ValueLayout.JAVA_BYTE, i) != ch) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static void addParam(MemorySegment s, long nameStart, long valueStart, long valueEnd, SegmentParameterConsumer parameters) {
         if (nameStart >= valueEnd) {
             return;
         }
@@ -151,9 +394,9 @@ public class StateMachineParsing {
         parameters.accept(s, nameStart, valueStart - 1, valueStart, valueEnd);
     }
 
-    private static int findFirstEscaped(String s, int from, int toExcluded, boolean isPath) {
-        for (int i = from; i < toExcluded; i++) {
-            char c = s.charAt(i);
+    private static long findFirstEscaped(MemorySegment s, long from, long toExcluded, boolean isPath) {
+        for (long i = from; i < toExcluded; i++) {
+            byte c = s.get(ValueLayout.JAVA_BYTE, i);
             if (c == '%' || c == '+' && !isPath) {
                 return i;
             }
@@ -170,13 +413,57 @@ public class StateMachineParsing {
                 bh.consume(endName - startName);
                 bh.consume(valueEnd - valueStart);
             }
+
+            @Override
+            public void acceptDecoded(byte[] decoded, int endName, int valueStart, int valueEnd) {
+                bh.consume(decoded);
+                bh.consume(endName);
+                bh.consume(valueEnd - valueStart);
+            }
         };
+        decoder = new PercentDecoder(toParse.length());
+        segmentConsumer = new SegmentParameterConsumer() {
+            @Override
+            public void accept(MemorySegment s, long startName, long endName, long valueStart, long valueEnd) {
+                bh.consume(s);
+                bh.consume(endName - startName);
+                bh.consume(valueEnd - valueStart);
+            }
+        };
+        toParseBytes = toParse.getBytes(StandardCharsets.US_ASCII);
+        heapToParse = MemorySegment.ofBuffer(ByteBuffer.wrap(toParseBytes));
+        directToParse = MemorySegment.ofBuffer(ByteBuffer.allocateDirect(toParseBytes.length).put(0, toParseBytes));
     }
 
     @Benchmark
     @CompilerControl(CompilerControl.Mode.DONT_INLINE)
     public void decodeParamaters() {
-        decodeParams(toParse, true, consumer, 1024, false);
+        decodeParams(toParse, true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void decodeParamatersSwar() {
+        decodeParamsSwar(toParse, true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void decodeParamatersDecodeString() {
+        // the URI bytes have to be decoded first, as it happens today
+        decodeParams(new String(toParseBytes, StandardCharsets.US_ASCII), true, consumer, decoder, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void decodeParamatersHeapSegment() {
+        decodeParams(heapToParse, true, segmentConsumer, 1024, false);
+    }
+
+    @Benchmark
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    public void decodeParamatersDirectSegment() {
+        decodeParams(directToParse, true, segmentConsumer, 1024, false);
     }
 
 }
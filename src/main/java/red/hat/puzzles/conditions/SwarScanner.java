@@ -0,0 +1,106 @@
+package red.hat.puzzles.conditions;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * SWAR (SIMD Within A Register) search of up to 4 ASCII delimiters, 8 bytes (or chars) per step.
+ * <p>
+ * Each delimiter is passed as a {@link #broadcast}ed pattern: to search less than 4 delimiters just repeat one.
+ */
+public final class SwarScanner {
+
+    // little endian packing makes the lowest index the least significant byte: no matter the arch
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private SwarScanner() {
+    }
+
+    public static long broadcast(char delimiter) {
+        if (delimiter > 0x7F) {
+            throw new IllegalArgumentException("only ASCII delimiters are supported");
+        }
+        return 0x0101010101010101L * delimiter;
+    }
+
+    /**
+     * Set the most significant bit of each zero byte of {@code word}.<br>
+     * Differently from the famous {@code (x - 0x01..) & ~x & 0x80..}, it doesn't report false positives
+     * because no borrow can propagate across bytes.
+     */
+    private static long zeroBytes(long word) {
+        final long t = (word & LOW_7_BITS) + LOW_7_BITS;
+        return ~(t | word | LOW_7_BITS);
+    }
+
+    private static long matches(long word, long d0, long d1, long d2, long d3) {
+        return zeroBytes(word ^ d0) | zeroBytes(word ^ d1) | zeroBytes(word ^ d2) | zeroBytes(word ^ d3);
+    }
+
+    private static boolean isAnyOf(int c, long d0, long d1, long d2, long d3) {
+        // the lowest byte of a broadcasted pattern is the delimiter itself
+        return c == (byte) d0 || c == (byte) d1 || c == (byte) d2 || c == (byte) d3;
+    }
+
+    /**
+     * @return the index of the first delimiter in {@code [from, to)} or {@code -1} if none
+     */
+    public static int findFirstOf(byte[] bytes, int from, int to, long d0, long d1, long d2, long d3) {
+        int i = from;
+        for (int batches = (to - from) >>> 3; batches > 0; batches--) {
+            final long found = matches((long) LONG.get(bytes, i), d0, d1, d2, d3);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+            i += 8;
+        }
+        for (; i < to; i++) {
+            if (isAnyOf(bytes[i], d0, d1, d2, d3)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link #findFirstOf(byte[], int, int, long, long, long, long)} but packing 8 chars in a long,
+     * as {@code CheckEscapingString::needEscapeBranchless} does.
+     */
+    public static int findFirstOf(String s, int from, int to, long d0, long d1, long d2, long d3) {
+        int i = from;
+        for (int batches = (to - from) >>> 3; batches > 0; batches--) {
+            final char c0 = s.charAt(i);
+            final char c1 = s.charAt(i + 1);
+            final char c2 = s.charAt(i + 2);
+            final char c3 = s.charAt(i + 3);
+            final char c4 = s.charAt(i + 4);
+            final char c5 = s.charAt(i + 5);
+            final char c6 = s.charAt(i + 6);
+            final char c7 = s.charAt(i + 7);
+            if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) > 0xFF) {
+                // a non Latin1 char could alias a delimiter once packed into a byte: just check this batch one by one
+                for (int j = i, end = i + 8; j < end; j++) {
+                    if (isAnyOf(s.charAt(j), d0, d1, d2, d3)) {
+                        return j;
+                    }
+                }
+            } else {
+                final long word = c0 | c1 << 8 | c2 << 16 | ((long) c3) << 24 |
+                        ((long) c4) << 32 | ((long) c5) << 40 | ((long) c6) << 48 | ((long) c7) << 56;
+                final long found = matches(word, d0, d1, d2, d3);
+                if (found != 0) {
+                    return i + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+            }
+            i += 8;
+        }
+        for (; i < to; i++) {
+            if (isAnyOf(s.charAt(i), d0, d1, d2, d3)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -3,6 +3,10 @@ package red.hat.puzzles.http;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.StringTokenizer;
 
@@ -86,13 +90,84 @@ public class AcceptCharsetParseBenchmark {
             "application/x-dvi",
             "application/x-dvi; charset=utf-8"};
 
+    private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    // "charset=" is exactly 8 bytes: we can search it with a single long comparison per position
+    private static final long CHARSET_EQ = MemorySegment.ofArray("charset=".getBytes(StandardCharsets.US_ASCII)).get(LONG_LE, 0);
+    private static final long NO_CHARSET = -1;
+
     private String[] mimeTypes;
     private String mimeTypeNoCharsetNoSemicolon;
+    private byte[][] mimeTypesBytes;
+    private MemorySegment[] heapMimeTypes;
+    private MemorySegment[] directMimeTypes;
+    private AcceptHeaders.MediaRangeConsumer mediaRangeConsumer;
+    private AcceptNegotiator negotiator;
 
     @Setup
-    public void init() {
+    public void init(Blackhole bh) {
         mimeTypes = ACCEPT_HEADERS;
         mimeTypeNoCharsetNoSemicolon = "application/xml";
+        mediaRangeConsumer = new AcceptHeaders.MediaRangeConsumer() {
+            @Override
+            public void accept(String header, int typeStart, int typeEnd, int subtypeStart, int subtypeEnd, String mediaType, int q, String charset) {
+                bh.consume(mediaType);
+                bh.consume(typeEnd - typeStart);
+                bh.consume(subtypeEnd - subtypeStart);
+                bh.consume(q);
+                bh.consume(charset);
+            }
+        };
+        negotiator = new AcceptNegotiator(AcceptHeaders.APPLICATION_JSON, AcceptHeaders.TEXT_PLAIN, AcceptHeaders.APPLICATION_XML);
+        for (String mimeType : ACCEPT_HEADERS) {
+            AcceptHeaders.parseAccept(mimeType, (header, typeStart, typeEnd, subtypeStart, subtypeEnd, mediaType, q, charset) -> {
+                final String range = header.substring(typeStart, subtypeEnd);
+                final String expected = switch (range.toLowerCase()) {
+                    case AcceptHeaders.ANY, AcceptHeaders.APPLICATION_JSON, AcceptHeaders.APPLICATION_XML,
+                         AcceptHeaders.APPLICATION_OCTET_STREAM, AcceptHeaders.TEXT_HTML, AcceptHeaders.TEXT_PLAIN ->
+                            range.toLowerCase().intern();
+                    default -> null;
+                };
+                if (mediaType != expected) {
+                    throw new AssertionError("Media type of " + range + " is " + mediaType);
+                }
+            });
+        }
+        checkNegotiation("application/json;q=0.9, text/plain;q=0.5", AcceptHeaders.APPLICATION_JSON);
+        checkNegotiation("TEXT/PLAIN", AcceptHeaders.TEXT_PLAIN);
+        checkNegotiation("*/*;q=0.1, application/xml", AcceptHeaders.APPLICATION_XML);
+        checkNegotiation("text/*;q=0.5, application/json;q=0", AcceptHeaders.TEXT_PLAIN);
+        checkNegotiation("image/png", null);
+        mimeTypesBytes = new byte[mimeTypes.length][];
+        heapMimeTypes = new MemorySegment[mimeTypes.length];
+        directMimeTypes = new MemorySegment[mimeTypes.length];
+        for (int i = 0; i < mimeTypes.length; i++) {
+            final byte[] bytes = mimeTypes[i].getBytes(StandardCharsets.US_ASCII);
+            mimeTypesBytes[i] = bytes;
+            // these are what a network stack would hand us, without any decoding
+            heapMimeTypes[i] = MemorySegment.ofBuffer(ByteBuffer.wrap(bytes));
+            directMimeTypes[i] = MemorySegment.ofBuffer(ByteBuffer.allocateDirect(bytes.length).put(0, bytes));
+            final String expected = getCharset(mimeTypes[i]);
+            for (MemorySegment segment : new MemorySegment[]{heapMimeTypes[i], directMimeTypes[i]}) {
+                final String charset = getCharset(segment);
+                // the common ones have to be the same constants
+                if (!expected.equals(charset) || ((expected == "utf-8" || expected == "us-ascii") && charset != expected)) {
+                    throw new AssertionError("Charset of " + mimeTypes[i] + " is " + charset + " instead of " + expected);
+                }
+            }
+        }
+        for (String mimeType : new String[]{"text/plain; charset=UTF-8", "text/plain; charset=us-ascii", "text/plain; charset=iso-8859-1"}) {
+            final String charset = getCharset(MemorySegment.ofArray(mimeType.getBytes(StandardCharsets.US_ASCII)));
+            if (!getCharset(mimeType).equals(charset)) {
+                throw new AssertionError("Charset of " + mimeType + " is " + charset);
+            }
+        }
+    }
+
+    private void checkNegotiation(String accept, String expected) {
+        final String negotiated = negotiator.negotiate(accept);
+        if (negotiated != expected) {
+            throw new AssertionError("Negotiated " + negotiated + " for " + accept + " instead of " + expected);
+        }
     }
 
     private static int indexOfSemicolonOrWhitespace(String s, int start) {
@@ -139,6 +214,80 @@ public class AcceptCharsetParseBenchmark {
         return mimeType.substring(charsetValueStart, charsetValueEnd);
     }
 
+    private static long indexOfSemicolonOrWhitespace(MemorySegment s, long start, long end) {
+        for (long i = start; i < end; i++) {
+            final byte c = s.get(ValueLayout.JAVA_BYTE, i);
+            if (c == ';' || Character.isWhitespace(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long indexOfCharset(MemorySegment s, long start, long end) {
+        for (long i = start, last = end - 8; i <= last; i++) {
+            if (s.get(LONG_LE, i) == CHARSET_EQ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link #parseCharset(String)}, but reading ASCII straight from the network bytes.
+     *
+     * @return the {@code [start, end)} offsets of the charset value packed as {@code start << 32 | end},
+     * or {@link #NO_CHARSET}
+     */
+    private static long parseCharset(MemorySegment mimeType, long start, long end) {
+        final long charsetIndex = indexOfCharset(mimeType, start, end);
+        if (charsetIndex == -1) {
+            return NO_CHARSET;
+        }
+        final long charsetValueStart = charsetIndex + 8;
+        final long firstSemicolonWhitespace = indexOfSemicolonOrWhitespace(mimeType, charsetValueStart, end);
+        final long charsetValueEnd = firstSemicolonWhitespace == -1 ? end : firstSemicolonWhitespace;
+        if (charsetValueEnd == charsetValueStart) {
+            return NO_CHARSET;
+        }
+        return charsetValueStart << 32 | charsetValueEnd;
+    }
+
+    private static boolean regionMatches(MemorySegment s, long start, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (s.get(ValueLayout.JAVA_BYTE, start + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #charsetOf(String, int, int, int)}, with the same (case-sensitive) rules: the common charsets
+     * are resolved to the same constants, while the others have to be decoded.
+     */
+    private static String charsetOf(MemorySegment mimeType, long start, long end) {
+        final long charsetLen = end - start;
+        if (charsetLen == 5 && regionMatches(mimeType, start, "utf-8")) {
+            return "utf-8";
+        }
+        if (charsetLen == 8 && regionMatches(mimeType, start, "us-ascii")) {
+            return "us-ascii";
+        }
+        return new String(mimeType.asSlice(start, charsetLen).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Same as {@link #getCharset(String)}, but reading ASCII straight from the network bytes.
+     */
+    private static String getCharset(MemorySegment mimeType) {
+        final long charsetOffsets = parseCharset(mimeType, 0, mimeType.byteSize());
+        if (charsetOffsets == NO_CHARSET) {
+            return StandardCharsets.UTF_8.name();
+        }
+        return charsetOf(mimeType, charsetOffsets >>> 32, charsetOffsets & 0xFFFF_FFFFL);
+    }
+
     private static String getCharset(String mimeType) {
         final String parsedCharset = parseCharset(mimeType);
         if (parsedCharset != null) {
@@ -183,6 +332,106 @@ public class AcceptCharsetParseBenchmark {
         return getCharsetTokenizer(mimeTypeNoCharsetNoSemicolon);
     }
 
+    @Benchmark
+    public void parseCharsetsDecodeStringNoSplit(Blackhole bh) {
+        // what we pay today: the network bytes have to become a String first
+        for (byte[] mimeType : mimeTypesBytes) {
+            bh.consume(getCharset(new String(mimeType, StandardCharsets.US_ASCII)));
+        }
+    }
+
+    @Benchmark
+    public void parseCharsetsHeapSegment(Blackhole bh) {
+        for (MemorySegment mimeType : heapMimeTypes) {
+            bh.consume(getCharset(mimeType));
+        }
+    }
+
+    @Benchmark
+    public void parseCharsetsDirectSegment(Blackhole bh) {
+        for (MemorySegment mimeType : directMimeTypes) {
+            bh.consume(getCharset(mimeType));
+        }
+    }
+
+    @Benchmark
+    public void parseAcceptNoSplit() {
+        for (String mimeType : mimeTypes) {
+            AcceptHeaders.parseAccept(mimeType, mediaRangeConsumer);
+        }
+    }
+
+    @Benchmark
+    public void parseAcceptSplit(Blackhole bh) {
+        for (String mimeType : mimeTypes) {
+            parseAcceptSplit(mimeType, bh);
+        }
+    }
+
+    @Benchmark
+    public void parseAcceptTokenizer(Blackhole bh) {
+        for (String mimeType : mimeTypes) {
+            parseAcceptTokenizer(mimeType, bh);
+        }
+    }
+
+    @Benchmark
+    public void negotiateNoSplit(Blackhole bh) {
+        final AcceptNegotiator negotiator = this.negotiator;
+        for (String mimeType : mimeTypes) {
+            bh.consume(negotiator.negotiate(mimeType));
+        }
+    }
+
+    private static void parseAcceptSplit(String header, Blackhole bh) {
+        for (String range : header.split(",")) {
+            String[] parts = range.split(";");
+            consumeMediaRange(parts[0].trim(), bh);
+            float q = 1f;
+            String charset = null;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    q = Float.parseFloat(param.substring(2));
+                } else if (param.startsWith("charset=")) {
+                    charset = param.substring(8);
+                }
+            }
+            bh.consume(q);
+            bh.consume(charset);
+        }
+    }
+
+    private static void parseAcceptTokenizer(String header, Blackhole bh) {
+        var ranges = new StringTokenizer(header, ",", false);
+        while (ranges.hasMoreTokens()) {
+            var parts = new StringTokenizer(ranges.nextToken(), ";", false);
+            consumeMediaRange(parts.nextToken().trim(), bh);
+            float q = 1f;
+            String charset = null;
+            while (parts.hasMoreTokens()) {
+                String param = parts.nextToken().trim();
+                if (param.startsWith("q=")) {
+                    q = Float.parseFloat(param.substring(2));
+                } else if (param.startsWith("charset=")) {
+                    charset = param.substring(8);
+                }
+            }
+            bh.consume(q);
+            bh.consume(charset);
+        }
+    }
+
+    private static void consumeMediaRange(String mediaRange, Blackhole bh) {
+        final int slash = mediaRange.indexOf('/');
+        if (slash == -1) {
+            bh.consume(mediaRange);
+        } else {
+            bh.consume(mediaRange.substring(0, slash));
+            bh.consume(mediaRange.substring(slash + 1));
+        }
+    }
+
     private static String getCharsetSplit(String mimeType) {
         if (mimeType != null && mimeType.contains(";")) {
             String[] parts = mimeType.split(";");
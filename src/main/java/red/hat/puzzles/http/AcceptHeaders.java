@@ -0,0 +1,260 @@
+package red.hat.puzzles.http;
+
+/**
+ * Allocation-free parser for RFC 9110 {@code Accept} and {@code Accept-Charset} headers.
+ * <p>
+ * It never splits the header: each media range (or charset) is reported as offsets into the original
+ * {@link String}, together with its {@code q} weight in thousandths and, if present, its {@code charset} parameter.
+ * The most common media types and charsets are handed back as pre-interned constants, see {@link #mediaTypeOf} and
+ * {@link #charsetOf}: media types which are not common are reported by offsets only, to not allocate.
+ */
+public final class AcceptHeaders {
+
+    /**
+     * {@code q=1}: {@code q} weights are reported in thousandths, as RFC 9110 allows up to 3 decimal digits.
+     */
+    public static final int Q_MAX = 1000;
+
+    public static final String ANY = "*/*";
+    public static final String APPLICATION_JSON = "application/json";
+    public static final String APPLICATION_XML = "application/xml";
+    public static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+    public static final String TEXT_HTML = "text/html";
+    public static final String TEXT_PLAIN = "text/plain";
+
+    public static final String UTF_8 = "utf-8";
+    public static final String US_ASCII = "us-ascii";
+
+    public interface MediaRangeConsumer {
+
+        /**
+         * For {@code Accept-Charset} (or ranges without a {@code /}) {@code subtypeStart == subtypeEnd == typeEnd}.
+         *
+         * @param mediaType the pre-interned constant of the range, see {@link #mediaTypeOf}, or {@code null}
+         */
+        void accept(String header, int typeStart, int typeEnd, int subtypeStart, int subtypeEnd, String mediaType, int q, String charset);
+    }
+
+    private AcceptHeaders() {
+    }
+
+    private static boolean isOws(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static int skipOws(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isOws(s.charAt(i))) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int trimOws(String s, int from, int to) {
+        for (int i = to; i > from; i--) {
+            if (!isOws(s.charAt(i - 1))) {
+                return i;
+            }
+        }
+        return from;
+    }
+
+    private static int indexOfSemicolonCommaOrWhitespace(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c == ';' || c == ',' || isOws(c)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int indexOf(String s, int from, int to, char ch) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the {@code ;} or {@code ,} closing the parameter starting at {@code start},
+     * skipping any quoted-string (e.g. {@code boundary="a;b"}).
+     */
+    private static int indexOfParameterEnd(String s, int start, int end) {
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ';' || c == ',') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Parses the {@code qvalue} grammar ({@code 0[.ddd]} or {@code 1[.000]}) into thousandths.
+     * Malformed values are ignored, as most servers do, and the range keeps the default weight.
+     */
+    static int parseQValue(String s, int start, int end) {
+        final int len = end - start;
+        if (len == 0 || len > 5) {
+            return Q_MAX;
+        }
+        final char units = s.charAt(start);
+        if (units != '0' && units != '1') {
+            return Q_MAX;
+        }
+        int q = units == '1' ? Q_MAX : 0;
+        if (len == 1) {
+            return q;
+        }
+        if (s.charAt(start + 1) != '.') {
+            return Q_MAX;
+        }
+        int scale = 100;
+        for (int i = start + 2; i < end; i++) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Q_MAX;
+            }
+            q += digit * scale;
+            scale /= 10;
+        }
+        return q > Q_MAX ? Q_MAX : q;
+    }
+
+    public static void parseAccept(String header, MediaRangeConsumer consumer) {
+        if (header == null) {
+            return;
+        }
+        final int len = header.length();
+        int i = 0;
+        while (i < len) {
+            i = skipOws(header, i, len);
+            if (i == len) {
+                return;
+            }
+            if (header.charAt(i) == ',') {
+                // empty list element: RFC 9110 asks recipients to tolerate them
+                i++;
+                continue;
+            }
+            final int typeStart = i;
+            final int tokenEnd = indexOfSemicolonCommaOrWhitespace(header, typeStart, len);
+            final int slash = indexOf(header, typeStart, tokenEnd, '/');
+            final int typeEnd = slash == -1 ? tokenEnd : slash;
+            final int subtypeStart = slash == -1 ? tokenEnd : slash + 1;
+            int q = Q_MAX;
+            String charset = null;
+            i = skipOws(header, tokenEnd, len);
+            while (i < len && header.charAt(i) == ';') {
+                final int nameStart = skipOws(header, i + 1, len);
+                final int paramEnd = indexOfParameterEnd(header, nameStart, len);
+                final int equals = indexOf(header, nameStart, paramEnd, '=');
+                if (equals != -1) {
+                    final int nameEnd = trimOws(header, nameStart, equals);
+                    int valueStart = skipOws(header, equals + 1, paramEnd);
+                    int valueEnd = trimOws(header, valueStart, paramEnd);
+                    if (valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+                        valueStart++;
+                        valueEnd--;
+                    }
+                    switch (nameEnd - nameStart) {
+                        case 1:
+                            final char name = header.charAt(nameStart);
+                            if (name == 'q' || name == 'Q') {
+                                q = parseQValue(header, valueStart, valueEnd);
+                            }
+                            break;
+                        case 7:
+                            if (valueEnd > valueStart && header.regionMatches(true, nameStart, "charset", 0, 7)) {
+                                charset = charsetOf(header, valueStart, valueEnd);
+                            }
+                            break;
+                    }
+                }
+                i = paramEnd;
+            }
+            if (tokenEnd > typeStart) {
+                consumer.accept(header, typeStart, typeEnd, subtypeStart, tokenEnd, mediaTypeOf(header, typeStart, tokenEnd), q, charset);
+            }
+            // we're either at the end or on the ',' which separates ranges; anything else is garbage to skip
+            if (i < len && header.charAt(i) != ',') {
+                final int nextComma = indexOf(header, i, len, ',');
+                i = nextComma == -1 ? len : nextComma;
+            }
+            i++;
+        }
+    }
+
+    public static String charsetOf(String s, int start, int end) {
+        final int len = end - start;
+        switch (len) {
+            case 5:
+                if (s.regionMatches(true, start, UTF_8, 0, 5)) {
+                    return UTF_8;
+                }
+                break;
+            case 8:
+                if (s.regionMatches(true, start, US_ASCII, 0, 8)) {
+                    return US_ASCII;
+                }
+                break;
+        }
+        return s.substring(start, end);
+    }
+
+    /**
+     * Differently from {@link #charsetOf}, it doesn't allocate.
+     *
+     * @return the pre-interned constant equal (ignoring case) to {@code s[start, end)}, or {@code null} if it's not a
+     * common media type
+     */
+    public static String mediaTypeOf(String s, int start, int end) {
+        final int len = end - start;
+        switch (len) {
+            case 3:
+                if (s.regionMatches(start, ANY, 0, 3)) {
+                    return ANY;
+                }
+                break;
+            case 9:
+                if (s.regionMatches(true, start, TEXT_HTML, 0, 9)) {
+                    return TEXT_HTML;
+                }
+                break;
+            case 10:
+                if (s.regionMatches(true, start, TEXT_PLAIN, 0, 10)) {
+                    return TEXT_PLAIN;
+                }
+                break;
+            case 15:
+                if (s.regionMatches(true, start, APPLICATION_XML, 0, 15)) {
+                    return APPLICATION_XML;
+                }
+                break;
+            case 16:
+                if (s.regionMatches(true, start, APPLICATION_JSON, 0, 16)) {
+                    return APPLICATION_JSON;
+                }
+                break;
+            case 24:
+                if (s.regionMatches(true, start, APPLICATION_OCTET_STREAM, 0, 24)) {
+                    return APPLICATION_OCTET_STREAM;
+                }
+                break;
+        }
+        return null;
+    }
+}
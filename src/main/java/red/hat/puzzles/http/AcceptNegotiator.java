@@ -0,0 +1,122 @@
+package red.hat.puzzles.http;
+
+import java.util.Arrays;
+
+/**
+ * Picks which of the server-side producible media types (or charsets) best satisfies an {@code Accept}
+ * (or {@code Accept-Charset}) header, following RFC 9110 section 12.5.1: the most specific matching range
+ * decides the weight of a candidate, {@code q=0} means "not acceptable" and ties are broken by the order
+ * the candidates were declared with.
+ * <p>
+ * Media range parameters other than {@code q} and {@code charset} don't contribute to specificity.
+ * <p>
+ * Common media types are matched by identity against their {@link AcceptHeaders#mediaTypeOf pre-interned constant}.
+ * <p>
+ * This is not thread-safe: it reuses its scratch state to stay allocation-free, so it's meant to be
+ * owned by a single thread (e.g. an event loop).
+ */
+public final class AcceptNegotiator implements AcceptHeaders.MediaRangeConsumer {
+
+    private static final int NO_MATCH = 0;
+    private static final int ANY_MATCH = 1;
+    private static final int TYPE_MATCH = 2;
+    private static final int EXACT_MATCH = 3;
+
+    private final String[] candidates;
+    // pre-interned constants of the candidates, or null
+    private final String[] candidateMediaTypes;
+    // index of '/' or the candidate length, if none
+    private final int[] candidateTypeEnds;
+    private final int[] specificity;
+    private final int[] quality;
+
+    public AcceptNegotiator(String... candidates) {
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("candidates cannot be empty");
+        }
+        this.candidates = candidates.clone();
+        this.candidateMediaTypes = new String[candidates.length];
+        this.candidateTypeEnds = new int[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            final String candidate = candidates[i];
+            candidateMediaTypes[i] = AcceptHeaders.mediaTypeOf(candidate, 0, candidate.length());
+            final int slash = candidate.indexOf('/');
+            candidateTypeEnds[i] = slash == -1 ? candidate.length() : slash;
+        }
+        this.specificity = new int[candidates.length];
+        this.quality = new int[candidates.length];
+    }
+
+    /**
+     * @return one of the candidates, or {@code null} if none is acceptable (i.e. {@code 406 Not Acceptable})
+     */
+    public String negotiate(String accept) {
+        final String[] candidates = this.candidates;
+        if (accept == null) {
+            // no header means any candidate is fine
+            return candidates[0];
+        }
+        final int[] specificity = this.specificity;
+        final int[] quality = this.quality;
+        Arrays.fill(specificity, NO_MATCH);
+        AcceptHeaders.parseAccept(accept, this);
+        int best = -1;
+        int bestQuality = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (specificity[i] != NO_MATCH && quality[i] > bestQuality) {
+                best = i;
+                bestQuality = quality[i];
+            }
+        }
+        return best == -1 ? null : candidates[best];
+    }
+
+    @Override
+    public void accept(String header, int typeStart, int typeEnd, int subtypeStart, int subtypeEnd, String mediaType, int q, String charset) {
+        final String[] candidates = this.candidates;
+        final String[] candidateMediaTypes = this.candidateMediaTypes;
+        final int[] candidateTypeEnds = this.candidateTypeEnds;
+        final int[] specificity = this.specificity;
+        final int[] quality = this.quality;
+        for (int i = 0; i < candidates.length; i++) {
+            final int match;
+            if (mediaType == AcceptHeaders.ANY) {
+                match = ANY_MATCH;
+            } else if (mediaType != null) {
+                // constants have no wildcards: any other candidate equal to it would be interned too
+                match = candidateMediaTypes[i] == mediaType ? EXACT_MATCH : NO_MATCH;
+            } else {
+                match = matchOf(candidates[i], candidateTypeEnds[i], header, typeStart, typeEnd, subtypeStart, subtypeEnd);
+            }
+            if (match > specificity[i]) {
+                specificity[i] = match;
+                quality[i] = q;
+            }
+        }
+    }
+
+    private static boolean isWildcard(String s, int start, int end) {
+        return end - start == 1 && s.charAt(start) == '*';
+    }
+
+    private static int matchOf(String candidate, int candidateTypeEnd, String header, int typeStart, int typeEnd, int subtypeStart, int subtypeEnd) {
+        if (isWildcard(header, typeStart, typeEnd)) {
+            // both "*/*" and the "*" of Accept-Charset
+            return ANY_MATCH;
+        }
+        final int typeLen = typeEnd - typeStart;
+        if (typeLen != candidateTypeEnd || !candidate.regionMatches(true, 0, header, typeStart, typeLen)) {
+            return NO_MATCH;
+        }
+        if (isWildcard(header, subtypeStart, subtypeEnd)) {
+            return TYPE_MATCH;
+        }
+        final int subtypeLen = subtypeEnd - subtypeStart;
+        final int candidateSubtypeStart = candidateTypeEnd == candidate.length() ? candidateTypeEnd : candidateTypeEnd + 1;
+        if (subtypeLen != candidate.length() - candidateSubtypeStart ||
+                !candidate.regionMatches(true, candidateSubtypeStart, header, subtypeStart, subtypeLen)) {
+            return NO_MATCH;
+        }
+        return EXACT_MATCH;
+    }
+}
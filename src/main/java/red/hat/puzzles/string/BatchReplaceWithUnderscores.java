@@ -0,0 +1,97 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+
+/**
+ * Startup-like normalization of a whole batch of env var names: one String (and byte[]) per name vs
+ * a single slab with on demand Strings, sequential or split across the common fork-join pool.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(AverageTime)
+public class BatchReplaceWithUnderscores {
+
+    @Param({"10000", "100000", "1000000"})
+    private int names;
+
+    @Param({"33"})
+    private int size;
+
+    @Param({"10"})
+    private int nonAlphanumericProbability;
+
+    @Param({"10"})
+    private int finalDoubleQuoteProbability;
+
+    private String[] dataSet;
+    private String[] results;
+    private StringUtilTable.ResizableByteArray slab;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void init() {
+        dataSet = ReplaceWithUnderscores.createDataSet(names, size, nonAlphanumericProbability, finalDoubleQuoteProbability);
+        results = new String[names];
+        slab = new StringUtilTable.ResizableByteArray(0);
+        pool = ForkJoinPool.commonPool();
+        final StringUtilTable.Replacements sequential = StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet, slab);
+        for (int i = 0; i < names; i++) {
+            if (!StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet[i]).equals(sequential.get(i))) {
+                throw new AssertionError("Batch replacement is broken");
+            }
+        }
+        final StringUtilTable.Replacements parallel = StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet, slab, pool);
+        for (int i = 0; i < names; i++) {
+            if (!StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet[i]).equals(parallel.get(i))) {
+                throw new AssertionError("Parallel batch replacement is broken");
+            }
+        }
+    }
+
+    @Benchmark
+    public String[] perName() {
+        final String[] dataSet = this.dataSet;
+        final String[] results = this.results;
+        for (int i = 0; i < dataSet.length; i++) {
+            results[i] = StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public StringUtilTable.Replacements batch() {
+        return StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet, slab);
+    }
+
+    @Benchmark
+    public StringUtilTable.Replacements batchParallel() {
+        return StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet, slab, pool);
+    }
+
+    @Benchmark
+    public void batchToStrings(Blackhole bh) {
+        // the worst case for the batch: all Strings are needed eventually
+        final StringUtilTable.Replacements replacements = StringUtilTable.replaceNonAlphanumericByUnderscores(dataSet, slab);
+        for (int i = 0; i < replacements.size(); i++) {
+            bh.consume(replacements.get(i));
+        }
+    }
+}
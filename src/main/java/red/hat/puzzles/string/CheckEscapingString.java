@@ -12,9 +12,19 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 @State(Scope.Benchmark)
@@ -25,8 +35,10 @@ import java.util.concurrent.TimeUnit;
 @Fork(2)
 public class CheckEscapingString {
 
-    // TODO: optimize this for both archs
-    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    // chars are packed in native order: no byte swap is needed to store them
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
     private static final int ESCAPE_STANDARD = -1;
     /**
      * Lookup table used for determining which output characters in
@@ -131,16 +143,29 @@ public class CheckEscapingString {
         int batches = input.length() / 8;
         int off = 0;
         for (int i = 0; i < batches; i++) {
-            final long batch1 = (((long) input.charAt(off)) << 48) |
-                    (((long) input.charAt(off + 2)) << 32) |
-                    input.charAt(off + 4) << 16 |
-                    input.charAt(off + 6);
-            final long batch2 = (((long) input.charAt(off + 1)) << 48) |
-                    (((long) input.charAt(off + 3)) << 32) |
-                    input.charAt(off + 5) << 16 |
-                    input.charAt(off + 7);
-            // pack the 8 bytes into a long, regardless
-            long asciiValues = (batch1 << 8) | batch2;
+            final long batch1;
+            final long batch2;
+            if (LITTLE_ENDIAN) {
+                batch1 = input.charAt(off) |
+                        input.charAt(off + 2) << 16 |
+                        (((long) input.charAt(off + 4)) << 32) |
+                        (((long) input.charAt(off + 6)) << 48);
+                batch2 = input.charAt(off + 1) |
+                        input.charAt(off + 3) << 16 |
+                        (((long) input.charAt(off + 5)) << 32) |
+                        (((long) input.charAt(off + 7)) << 48);
+            } else {
+                batch1 = (((long) input.charAt(off + 1)) << 48) |
+                        (((long) input.charAt(off + 3)) << 32) |
+                        input.charAt(off + 5) << 16 |
+                        input.charAt(off + 7);
+                batch2 = (((long) input.charAt(off)) << 48) |
+                        (((long) input.charAt(off + 2)) << 32) |
+                        input.charAt(off + 4) << 16 |
+                        input.charAt(off + 6);
+            }
+            // pack the 8 bytes into a long, regardless: the first char is the byte with the lowest address
+            long asciiValues = (batch2 << 8) | batch1;
             // from now one we reason like the bytes are all ascii
             // this is checking if we're withing the [0, 31] range: any negative value here have the 8th bit set
             long lessThan32 = asciiValues - 0x2020202020202020L;
@@ -170,4 +195,317 @@ public class CheckEscapingString {
         }
         return false;
     }
+
+    /**
+     * Writes the JSON escaped UTF-8 encoding of {@code input.charAt(i)} at {@code output[o]}.<br>
+     * A surrogate pair is encoded while processing its high surrogate, and skipped on the low one:
+     * this keeps the method stateless, at the cost of peeking the previous char.
+     *
+     * @return the new output offset
+     */
+    private static int escapeChar(String input, int i, byte[] output, int o) {
+        final char c = input.charAt(i);
+        if (c < 0x80) {
+            final int escape = sOutputEscapes128[c];
+            if (escape == 0) {
+                output[o] = (byte) c;
+                return o + 1;
+            }
+            output[o] = '\\';
+            if (escape > 0) {
+                output[o + 1] = (byte) escape;
+                return o + 2;
+            }
+            output[o + 1] = 'u';
+            output[o + 2] = '0';
+            output[o + 3] = '0';
+            output[o + 4] = HEX[c >> 4];
+            output[o + 5] = HEX[c & 0xF];
+            return o + 6;
+        }
+        if (c < 0x800) {
+            output[o] = (byte) (0xC0 | c >> 6);
+            output[o + 1] = (byte) (0x80 | c & 0x3F);
+            return o + 2;
+        }
+        if (!Character.isSurrogate(c)) {
+            output[o] = (byte) (0xE0 | c >> 12);
+            output[o + 1] = (byte) (0x80 | c >> 6 & 0x3F);
+            output[o + 2] = (byte) (0x80 | c & 0x3F);
+            return o + 3;
+        }
+        if (Character.isHighSurrogate(c)) {
+            final char low;
+            if (i + 1 < input.length() && Character.isLowSurrogate(low = input.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, low);
+                output[o] = (byte) (0xF0 | codePoint >> 18);
+                output[o + 1] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                output[o + 2] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                output[o + 3] = (byte) (0x80 | codePoint & 0x3F);
+                return o + 4;
+            }
+        } else if (i > 0 && Character.isHighSurrogate(input.charAt(i - 1))) {
+            // already encoded with its high surrogate
+            return o;
+        }
+        // malformed: same replacement of the JDK UTF-8 encoder
+        output[o] = '?';
+        return o + 1;
+    }
+
+    /**
+     * Worst case is a 6 bytes unicode escape sequence for each char.
+     */
+    static int maxEscapedLength(int length) {
+        return length * 6;
+    }
+
+    /**
+     * @param output it must be at least {@link #maxEscapedLength} long
+     * @return the number of bytes written
+     */
+    static int escapeScalar(String input, byte[] output) {
+        int o = 0;
+        for (int i = 0; i < input.length(); i++) {
+            o = escapeChar(input, i, output, o);
+        }
+        return o;
+    }
+
+    /**
+     * Same as {@link #needEscapeBranchless}, but packing the chars in native order and escaping whatever is found.
+     */
+    static int escapeSwar(String input, byte[] output) {
+        return escapeSwar(input, 0, input.length(), output, 0);
+    }
+
+    /**
+     * Escapes {@code input[from, to)} into {@code output}, starting at {@code o}: it can be used to escape
+     * a string in slices, given that a surrogate pair split across two of them is handled by {@link #escapeChar}.
+     *
+     * @param output it must have {@link #maxEscapedLength} of {@code to - from} bytes available from {@code o}
+     * @return the new output offset
+     */
+    static int escapeSwar(String input, int from, int to, byte[] output, int o) {
+        int i = from;
+        while (i + 8 <= to) {
+            final char c0 = input.charAt(i);
+            final char c1 = input.charAt(i + 1);
+            final char c2 = input.charAt(i + 2);
+            final char c3 = input.charAt(i + 3);
+            final char c4 = input.charAt(i + 4);
+            final char c5 = input.charAt(i + 5);
+            final char c6 = input.charAt(i + 6);
+            final char c7 = input.charAt(i + 7);
+            if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) > 0x7F) {
+                // non-ASCII needs to be UTF-8 encoded: one by one
+                for (int end = i + 8; i < end; i++) {
+                    o = escapeChar(input, i, output, o);
+                }
+                continue;
+            }
+            // first char in the least significant byte, regardless the native order
+            final long asciiValues = c0 | c1 << 8 | c2 << 16 | ((long) c3) << 24 |
+                    ((long) c4) << 32 | ((long) c5) << 40 | ((long) c6) << 48 | ((long) c7) << 56;
+            // see needEscapeBranchless: all these are ASCII, so no false positives can happen below the first match
+            final long lessThan32 = asciiValues - 0x2020202020202020L;
+            final long notQuote = (asciiValues ^ 0x2222222222222222L) - 0x0101010101010101L;
+            final long notBackslash = (asciiValues ^ 0x5C5C5C5C5C5C5C5CL) - 0x0101010101010101L;
+            final long toEscape = (lessThan32 | notQuote | notBackslash) & 0x8080808080808080L;
+            // the escaped bytes will overwrite what's after the clean prefix, if any
+            LONG.set(output, o, LITTLE_ENDIAN ? asciiValues : Long.reverseBytes(asciiValues));
+            if (toEscape == 0) {
+                i += 8;
+                o += 8;
+            } else {
+                final int clean = Long.numberOfTrailingZeros(toEscape) >>> 3;
+                i += clean;
+                o = escapeChar(input, i, output, o + clean);
+                i++;
+            }
+        }
+        for (; i < to; i++) {
+            o = escapeChar(input, i, output, o);
+        }
+        return o;
+    }
+
+    /**
+     * Using the Vector API requires {@code --add-modules jdk.incubator.vector}: this is in a separate class to not
+     * fail the initialization of {@link CheckEscapingString} without it.
+     */
+    static final class Vectorized {
+
+        private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+        private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(CHARS.vectorBitSize() / 2));
+        private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, CHARS.vectorShape());
+        // keeps the 3 lowest bytes of each int lane, packed at the beginning: the rest is garbage
+        private static final VectorShuffle<Byte> PACK_3_OF_4 = VectorShuffle.fromOp(
+                VectorSpecies.of(byte.class, CHARS.vectorShape()),
+                i -> i < INTS.length() * 3 ? (i / 3) * 4 + i % 3 : 0);
+        // chars copied from the String at once
+        static final int CHUNK_SIZE = CHARS.length() * 64;
+
+        private Vectorized() {
+        }
+
+        /**
+         * @param chunk a scratch buffer of {@link #CHUNK_SIZE} chars
+         * @see #escapeScalar(String, byte[])
+         */
+        static int escape(String input, byte[] output, char[] chunk) {
+            final int length = input.length();
+            final int lanes = CHARS.length();
+            int i = 0;
+            int o = 0;
+            while (i + lanes <= length) {
+                // we cannot access the String content directly: copy it in bulk
+                final int chunkLength = Math.min(chunk.length, length - i) / lanes * lanes;
+                final int chunkStart = i;
+                input.getChars(chunkStart, chunkStart + chunkLength, chunk, 0);
+                int c = 0;
+                while (c + lanes <= chunkLength) {
+                    final ShortVector chars = ShortVector.fromCharArray(CHARS, chunk, c);
+                    final VectorMask<Short> toEscape = chars.compare(VectorOperators.UNSIGNED_GT, 0x7F)
+                            .or(chars.compare(VectorOperators.UNSIGNED_LT, 0x20))
+                            .or(chars.compare(VectorOperators.EQ, '"'))
+                            .or(chars.compare(VectorOperators.EQ, '\\'));
+                    // the escaped bytes will overwrite what's after the clean prefix, if any
+                    ((ByteVector) chars.convertShape(VectorOperators.S2B, BYTES, 0)).intoArray(output, o);
+                    final int clean = toEscape.firstTrue();
+                    if (clean == lanes) {
+                        c += lanes;
+                        o += lanes;
+                    } else {
+                        o = escapeChar(input, chunkStart + c + clean, output, o + clean);
+                        c += clean + 1;
+                    }
+                }
+                i = chunkStart + c;
+            }
+            for (; i < length; i++) {
+                o = escapeChar(input, i, output, o);
+            }
+            return o;
+        }
+
+        /**
+         * Differently from {@link #escape}, it doesn't fall back to {@link #escapeChar} for each non-ASCII char.
+         * <p>
+         * Each step classifies the chars by UTF-8 length: the run of chars with the same length of the first one is
+         * encoded in bulk (1, 2 or 3 bytes each, or 4 for each surrogate pair), while special ASCII chars and
+         * malformed surrogates are left to {@link #escapeChar}.
+         *
+         * @param chunk a scratch buffer of {@link #CHUNK_SIZE} chars
+         * @see #escapeScalar(String, byte[])
+         */
+        static int escapeMultiByte(String input, byte[] output, char[] chunk) {
+            final int length = input.length();
+            final int lanes = CHARS.length();
+            int i = 0;
+            int o = 0;
+            while (i + lanes <= length) {
+                final int chunkLength = Math.min(chunk.length, length - i) / lanes * lanes;
+                final int chunkStart = i;
+                input.getChars(chunkStart, chunkStart + chunkLength, chunk, 0);
+                int c = 0;
+                while (c + lanes <= chunkLength) {
+                    final ShortVector chars = ShortVector.fromCharArray(CHARS, chunk, c);
+                    final char first = chunk[c];
+                    // encoded bytes past the run will be overwritten by the next step
+                    final int run;
+                    if (first < 0x80) {
+                        run = chars.compare(VectorOperators.UNSIGNED_GT, 0x7F)
+                                .or(chars.compare(VectorOperators.UNSIGNED_LT, 0x20))
+                                .or(chars.compare(VectorOperators.EQ, '"'))
+                                .or(chars.compare(VectorOperators.EQ, '\\'))
+                                .firstTrue();
+                        ((ByteVector) chars.convertShape(VectorOperators.S2B, BYTES, 0)).intoArray(output, o);
+                        o += run;
+                    } else if (first < 0x800) {
+                        run = chars.compare(VectorOperators.UNSIGNED_LT, 0x80)
+                                .or(chars.compare(VectorOperators.UNSIGNED_GT, 0x7FF))
+                                .firstTrue();
+                        encode2Bytes(chars, output, o);
+                        o += run * 2;
+                    } else if (!Character.isSurrogate(first)) {
+                        run = chars.compare(VectorOperators.UNSIGNED_LT, 0x800)
+                                .or(chars.compare(VectorOperators.UNSIGNED_GE, (short) Character.MIN_SURROGATE)
+                                        .and(chars.compare(VectorOperators.UNSIGNED_LE, (short) Character.MAX_SURROGATE)))
+                                .firstTrue();
+                        encode3Bytes(chars, output, o);
+                        o += run * 3;
+                    } else if (Character.isHighSurrogate(first)) {
+                        final int pairs = encodeSurrogatePairs(chars, output, o);
+                        run = pairs * 2;
+                        o += pairs * 4;
+                    } else {
+                        run = 0;
+                    }
+                    if (run == 0) {
+                        o = escapeChar(input, chunkStart + c, output, o);
+                        c++;
+                    } else {
+                        c += run;
+                    }
+                }
+                i = chunkStart + c;
+            }
+            for (; i < length; i++) {
+                o = escapeChar(input, i, output, o);
+            }
+            return o;
+        }
+
+        /**
+         * Writes {@code 2 * CHARS.length()} bytes.
+         */
+        private static void encode2Bytes(ShortVector chars, byte[] output, int o) {
+            final ShortVector first = chars.lanewise(VectorOperators.LSHR, 6).or((short) 0xC0);
+            final ShortVector second = chars.and((short) 0x3F).or((short) 0x80);
+            // lanes reinterpretation is always little endian: the first byte is the least significant one
+            first.or(second.lanewise(VectorOperators.LSHL, 8)).reinterpretAsBytes().intoArray(output, o);
+        }
+
+        /**
+         * Writes {@code 3.5 * CHARS.length()} bytes.
+         */
+        private static void encode3Bytes(ShortVector chars, byte[] output, int o) {
+            for (int part = 0; part < 2; part++) {
+                final IntVector codeUnits = ((IntVector) chars.convertShape(VectorOperators.S2I, INTS, part)).and(0xFFFF);
+                final IntVector first = codeUnits.lanewise(VectorOperators.LSHR, 12).or(0xE0);
+                final IntVector second = codeUnits.lanewise(VectorOperators.LSHR, 6).and(0x3F).or(0x80);
+                final IntVector third = codeUnits.and(0x3F).or(0x80);
+                final IntVector utf8 = first.or(second.lanewise(VectorOperators.LSHL, 8)).or(third.lanewise(VectorOperators.LSHL, 16));
+                utf8.reinterpretAsBytes().rearrange(PACK_3_OF_4).intoArray(output, o + part * INTS.length() * 3);
+            }
+        }
+
+        /**
+         * Writes {@code 2 * CHARS.length()} bytes, encoding each pair of chars as a surrogate pair.
+         *
+         * @return how many leading pairs are well-formed, ie the ones encoded correctly
+         */
+        private static int encodeSurrogatePairs(ShortVector chars, byte[] output, int o) {
+            // lanes reinterpretation is always little endian: the first char (the high surrogate) is the least significant half
+            final IntVector pairs = chars.reinterpretAsInts();
+            final IntVector high = pairs.and(0xFFFF);
+            final IntVector low = pairs.lanewise(VectorOperators.LSHR, 16);
+            final int wellFormed = high.and(0xFC00).compare(VectorOperators.NE, Character.MIN_HIGH_SURROGATE)
+                    .or(low.and(0xFC00).compare(VectorOperators.NE, Character.MIN_LOW_SURROGATE))
+                    .firstTrue();
+            final IntVector codePoints = high.sub(Character.MIN_HIGH_SURROGATE).lanewise(VectorOperators.LSHL, 10)
+                    .or(low.sub(Character.MIN_LOW_SURROGATE))
+                    .add(Character.MIN_SUPPLEMENTARY_CODE_POINT);
+            final IntVector first = codePoints.lanewise(VectorOperators.LSHR, 18).or(0xF0);
+            final IntVector second = codePoints.lanewise(VectorOperators.LSHR, 12).and(0x3F).or(0x80);
+            final IntVector third = codePoints.lanewise(VectorOperators.LSHR, 6).and(0x3F).or(0x80);
+            final IntVector fourth = codePoints.and(0x3F).or(0x80);
+            first.or(second.lanewise(VectorOperators.LSHL, 8))
+                    .or(third.lanewise(VectorOperators.LSHL, 16))
+                    .or(fourth.lanewise(VectorOperators.LSHL, 24))
+                    .reinterpretAsBytes().intoArray(output, o);
+            return wellFormed;
+        }
+    }
 }
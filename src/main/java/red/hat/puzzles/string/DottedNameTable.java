@@ -0,0 +1,91 @@
+package red.hat.puzzles.string;
+
+/**
+ * Property names to values, which can be looked up by the ASCII bytes of a name and its {@link String#hashCode()},
+ * as computed by {@link ToLowerCaseAndDotted#toLowerCaseAndDotted(String, byte[], int)}, without creating a String.
+ * <p>
+ * It's an open addressing table, whose keys are compared with the bytes only if their hash codes are the same.<br>
+ * It is immutable once built, hence safe to be shared.
+ */
+public final class DottedNameTable<V> {
+
+    private final String[] names;
+    private final int[] hashes;
+    private final Object[] values;
+    private final int mask;
+
+    public DottedNameTable(String[] names, V[] values) {
+        if (names.length != values.length) {
+            throw new IllegalArgumentException("names and values must have the same length");
+        }
+        // keep the load factor below 0.5
+        final int capacity = Integer.highestOneBit(Math.max(2, names.length) * 2 - 1) << 1;
+        this.names = new String[capacity];
+        this.hashes = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < names.length; i++) {
+            put(names[i], values[i]);
+        }
+    }
+
+    private static int slotOf(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void put(String name, Object value) {
+        final int hash = name.hashCode();
+        int slot = slotOf(hash, mask);
+        while (names[slot] != null) {
+            if (hashes[slot] == hash && names[slot].equals(name)) {
+                throw new IllegalArgumentException("Duplicate name " + name);
+            }
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        hashes[slot] = hash;
+        values[slot] = value;
+    }
+
+    private static boolean contentEquals(String name, byte[] bytes, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != (bytes[offset + i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(byte[] bytes, int offset, int length, int hash) {
+        final String[] names = this.names;
+        final int[] hashes = this.hashes;
+        final int mask = this.mask;
+        for (int slot = slotOf(hash, mask); ; slot = (slot + 1) & mask) {
+            final String name = names[slot];
+            if (name == null) {
+                return null;
+            }
+            if (hashes[slot] == hash && contentEquals(name, bytes, offset, length)) {
+                return (V) values[slot];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(String name) {
+        final int hash = name.hashCode();
+        for (int slot = slotOf(hash, mask); ; slot = (slot + 1) & mask) {
+            final String candidate = names[slot];
+            if (candidate == null) {
+                return null;
+            }
+            if (hashes[slot] == hash && candidate.equals(name)) {
+                return (V) values[slot];
+            }
+        }
+    }
+}
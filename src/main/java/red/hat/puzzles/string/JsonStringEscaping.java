@@ -0,0 +1,85 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full JSON string escaping of {@link CheckEscapingString}: scalar vs SWAR vs Vector API.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class JsonStringEscaping {
+
+    private static final char[] TEXT = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ,.:;-/'".toCharArray();
+    private static final char[] TO_ESCAPE = {'"', '\\', '\n', '\t', '\r', '\b', '\f', '\u0001'};
+
+    @Param({"16", "256", "4096", "65536"})
+    int size;
+
+    // percentage of chars requiring to be escaped
+    @Param({"0", "2"})
+    int escapePercent;
+
+    String input;
+    byte[] output;
+    char[] chunk;
+
+    static String createPayload(SplittableRandom rnd, int size, int escapePercent) {
+        char[] payload = new char[size];
+        for (int i = 0; i < size; i++) {
+            if (rnd.nextInt(100) < escapePercent) {
+                payload[i] = TO_ESCAPE[rnd.nextInt(TO_ESCAPE.length)];
+            } else {
+                payload[i] = TEXT[rnd.nextInt(TEXT.length)];
+            }
+        }
+        return new String(payload);
+    }
+
+    @Setup
+    public void init() {
+        input = createPayload(new SplittableRandom(42), size, escapePercent);
+        output = new byte[CheckEscapingString.maxEscapedLength(size)];
+        chunk = new char[CheckEscapingString.Vectorized.CHUNK_SIZE];
+        final int expectedLength = CheckEscapingString.escapeScalar(input, output);
+        final byte[] expected = Arrays.copyOf(output, expectedLength);
+        if (!Arrays.equals(expected, Arrays.copyOf(output, CheckEscapingString.escapeSwar(input, output)))) {
+            throw new AssertionError("SWAR escaping is broken");
+        }
+        if (!Arrays.equals(expected, Arrays.copyOf(output, CheckEscapingString.Vectorized.escape(input, output, chunk)))) {
+            throw new AssertionError("Vectorized escaping is broken");
+        }
+    }
+
+    @Benchmark
+    public int escapeScalar() {
+        return CheckEscapingString.escapeScalar(input, output);
+    }
+
+    @Benchmark
+    public int escapeSwar() {
+        return CheckEscapingString.escapeSwar(input, output);
+    }
+
+    @Benchmark
+    public int escapeVectorized() {
+        return CheckEscapingString.Vectorized.escape(input, output, chunk);
+    }
+}
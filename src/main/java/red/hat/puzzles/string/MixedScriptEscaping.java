@@ -0,0 +1,147 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON escaping of i18n payloads: {@link CheckEscapingString.Vectorized#escape} is fast as long as the input is
+ * ASCII, while {@link CheckEscapingString.Vectorized#escapeMultiByte} encodes runs of 2, 3 and 4 bytes UTF-8 (ie surrogate
+ * pairs) in bulk too.
+ * <p>
+ * {@code getBytes} is just a reference for the encoding cost: it doesn't escape anything.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class MixedScriptEscaping {
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz";
+    private static final String ACCENTED = "àáâãäåçèéêëìíîïñòóôõöùúûüýÿ";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
+    private static final String CJK_PUNCTUATION = "，。、「」";
+    private static final String TO_ESCAPE = "\"\\\n\t";
+
+    @Param({"accented", "cyrillic", "cjk", "emoji"})
+    String script;
+
+    @Param({"256", "4096"})
+    int size;
+
+    String input;
+    byte[] output;
+    char[] chunk;
+
+    private static char pick(SplittableRandom rnd, String chars) {
+        return chars.charAt(rnd.nextInt(chars.length()));
+    }
+
+    static String createPayload(SplittableRandom rnd, String script, int size) {
+        StringBuilder payload = new StringBuilder(size);
+        while (payload.length() < size) {
+            final int dice = rnd.nextInt(100);
+            if (dice == 0) {
+                // something to escape, now and then
+                payload.append(pick(rnd, TO_ESCAPE));
+                continue;
+            }
+            switch (script) {
+                case "accented":
+                    // mostly ASCII words with few accented letters
+                    payload.append(dice < 12 ? pick(rnd, ACCENTED) : dice < 25 ? ' ' : pick(rnd, ASCII));
+                    break;
+                case "cyrillic":
+                    // 2 bytes words separated by ASCII spaces
+                    payload.append(dice < 15 ? ' ' : pick(rnd, CYRILLIC));
+                    break;
+                case "cjk":
+                    // 3 bytes with no spaces but some punctuation
+                    payload.append(dice < 5 ? pick(rnd, CJK_PUNCTUATION) : (char) rnd.nextInt(0x4E00, 0xA000));
+                    break;
+                case "emoji":
+                    // ASCII text with surrogate pairs in between
+                    if (dice < 10) {
+                        payload.appendCodePoint(rnd.nextInt(0x1F600, 0x1F650));
+                    } else {
+                        payload.append(dice < 25 ? ' ' : pick(rnd, ASCII));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown script " + script);
+            }
+        }
+        return payload.toString();
+    }
+
+    @Setup
+    public void init() {
+        input = createPayload(new SplittableRandom(42), script, size);
+        output = new byte[CheckEscapingString.maxEscapedLength(input.length())];
+        chunk = new char[CheckEscapingString.Vectorized.CHUNK_SIZE];
+        final byte[] expected = Arrays.copyOf(output, CheckEscapingString.escapeScalar(input, output));
+        if (!Arrays.equals(expected, Arrays.copyOf(output, CheckEscapingString.Vectorized.escapeMultiByte(input, output, chunk)))) {
+            throw new AssertionError("Vectorized multi-byte escaping is broken");
+        }
+        // runs of surrogate pairs, malformed ones and pairs split across vectors too
+        final StringBuilder surrogates = new StringBuilder();
+        final SplittableRandom rnd = new SplittableRandom(42);
+        while (surrogates.length() < 4096) {
+            final int dice = rnd.nextInt(100);
+            if (dice < 2) {
+                surrogates.append((char) rnd.nextInt(Character.MIN_SURROGATE, Character.MAX_SURROGATE + 1));
+            } else if (dice < 5) {
+                surrogates.append(pick(rnd, ASCII));
+            } else {
+                surrogates.appendCodePoint(rnd.nextInt(Character.MIN_SUPPLEMENTARY_CODE_POINT, Character.MAX_CODE_POINT + 1));
+            }
+        }
+        final String surrogatesInput = surrogates.toString();
+        final byte[] surrogatesOutput = new byte[CheckEscapingString.maxEscapedLength(surrogatesInput.length())];
+        final byte[] surrogatesExpected = Arrays.copyOf(surrogatesOutput, CheckEscapingString.escapeScalar(surrogatesInput, surrogatesOutput));
+        if (!Arrays.equals(surrogatesExpected, Arrays.copyOf(surrogatesOutput,
+                CheckEscapingString.Vectorized.escapeMultiByte(surrogatesInput, surrogatesOutput, chunk)))) {
+            throw new AssertionError("Vectorized surrogate pairs escaping is broken");
+        }
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        return input.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int escapeScalar() {
+        return CheckEscapingString.escapeScalar(input, output);
+    }
+
+    @Benchmark
+    public int escapeSwar() {
+        return CheckEscapingString.escapeSwar(input, output);
+    }
+
+    @Benchmark
+    public int escapeVectorized() {
+        return CheckEscapingString.Vectorized.escape(input, output, chunk);
+    }
+
+    @Benchmark
+    public int escapeVectorizedMultiByte() {
+        return CheckEscapingString.Vectorized.escapeMultiByte(input, output, chunk);
+    }
+}
@@ -0,0 +1,114 @@
+package red.hat.puzzles.string;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of normalized names eg {@link ToLowerCaseAndDotted#toLowerCaseAndDotted(String)} or
+ * {@link StringUtilTable#replaceNonAlphanumericByUnderscores(String)}.
+ * <p>
+ * Each name can only be stored in a small window of slots of an open addressing table, which is scanned
+ * checking the key identity first, and content later: reads never lock nor write anything but the counters.<br>
+ * Once the configured size is reached, a miss replaces a victim in the window of the name.
+ * <p>
+ * Racing misses can store the same name twice, which is harmless, but for wasting a slot.
+ */
+public final class NormalizedNameCache {
+
+    private static final class Entry {
+
+        private final String name;
+        private final int hash;
+        private final String normalized;
+
+        private Entry(String name, int hash, String normalized) {
+            this.name = name;
+            this.hash = hash;
+            this.normalized = normalized;
+        }
+    }
+
+    private static final int WINDOW = 8;
+    // the capacity is up to 4 times the size, within the max positive power of 2
+    private static final int MAX_SIZE = 1 << 29;
+
+    private final Function<String, String> normalizer;
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public NormalizedNameCache(int maxSize, Function<String, String> normalizer) {
+        if (maxSize <= 0 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("maxSize must be positive and at most " + MAX_SIZE + ": " + maxSize);
+        }
+        this.normalizer = normalizer;
+        this.maxSize = maxSize;
+        // keep the load factor below 0.5 and the window within the table
+        final int capacity = Math.max(WINDOW, Integer.highestOneBit(maxSize - 1) << 2);
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.size = new AtomicInteger();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public String normalize(String name) {
+        final AtomicReferenceArray<Entry> table = this.table;
+        final int mask = this.mask;
+        final int hash = name.hashCode();
+        final int start = spread(hash);
+        for (int i = 0; i < WINDOW; i++) {
+            final Entry entry = table.getAcquire((start + i) & mask);
+            if (entry == null) {
+                // entries are never removed: no need to look further
+                break;
+            }
+            final String cached = entry.name;
+            if (cached == name || (entry.hash == hash && cached.equals(name))) {
+                hits.increment();
+                return entry.normalized;
+            }
+        }
+        misses.increment();
+        final String normalized = normalizer.apply(name);
+        store(start, new Entry(name, hash, normalized));
+        return normalized;
+    }
+
+    private void store(int start, Entry entry) {
+        final AtomicReferenceArray<Entry> table = this.table;
+        final int mask = this.mask;
+        if (size.get() < maxSize) {
+            for (int i = 0; i < WINDOW; i++) {
+                final int slot = (start + i) & mask;
+                if (table.getAcquire(slot) == null && table.compareAndSet(slot, null, entry)) {
+                    size.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        // full or too crowded window: other bits of the hash pick the victim, to not always evict the first slot
+        table.setRelease((start + ((entry.hash >>> 24) & (WINDOW - 1))) & mask, entry);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,167 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NormalizedNameCache} vs normalizing each time, with few hundred config keys looked up following a Zipfian
+ * distribution, ie few keys are way more popular than the rest.
+ * <p>
+ * With {@code identity=false} the keys looked up are equal, but not the same instances as the cached ones.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class NormalizedNameCaching {
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"500"})
+    int keys;
+
+    // 256 is smaller than keys, to cause some eviction: 1024 is the no-eviction baseline
+    @Param({"256", "1024"})
+    int maxSize;
+
+    @Param({"0.99"})
+    double zipfExponent;
+
+    @Param({"true", "false"})
+    boolean identity;
+
+    String[] names;
+    double[] zipfCdf;
+    NormalizedNameCache cache;
+
+    @State(Scope.Thread)
+    public static class Lookups {
+
+        String[] names;
+        int next;
+
+        @Setup
+        public void init(NormalizedNameCaching benchmark, ThreadParams threadParams) {
+            final SplittableRandom rnd = new SplittableRandom(threadParams.getThreadIndex());
+            names = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                final String name = benchmark.names[zipf(rnd, benchmark.zipfCdf)];
+                names[i] = benchmark.identity ? name : new String(name);
+            }
+        }
+
+        String nextName() {
+            final int next = this.next;
+            this.next = (next + 1) & (LOOKUPS - 1);
+            return names[next];
+        }
+    }
+
+    private static int zipf(SplittableRandom rnd, double[] cdf) {
+        final double dice = rnd.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cdf[middle] < dice) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Setup
+    public void init() {
+        final SplittableRandom rnd = new SplittableRandom(42);
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            final StringBuilder name = new StringBuilder("QUARKUS");
+            final int segments = rnd.nextInt(2, 6);
+            for (int s = 0; s < segments; s++) {
+                name.append('_');
+                for (int c = rnd.nextInt(3, 10); c > 0; c--) {
+                    name.append((char) rnd.nextInt('A', 'Z' + 1));
+                }
+            }
+            name.append('_').append(i);
+            names[i] = name.toString();
+        }
+        zipfCdf = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1 / Math.pow(i + 1, zipfExponent);
+            zipfCdf[i] = sum;
+        }
+        for (int i = 0; i < keys; i++) {
+            zipfCdf[i] /= sum;
+        }
+        cache = new NormalizedNameCache(maxSize, ToLowerCaseAndDotted::toLowerCaseAndDotted);
+        for (String name : names) {
+            if (!cache.normalize(name).equals(ToLowerCaseAndDotted.toLowerCaseAndDotted(name))) {
+                throw new AssertionError("Caching is broken");
+            }
+        }
+    }
+
+    private String uncached(Lookups lookups) {
+        return ToLowerCaseAndDotted.toLowerCaseAndDotted(lookups.nextName());
+    }
+
+    private String cached(Lookups lookups) {
+        return cache.normalize(lookups.nextName());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String uncached1(Lookups lookups) {
+        return uncached(lookups);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uncached4(Lookups lookups) {
+        return uncached(lookups);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String uncached16(Lookups lookups) {
+        return uncached(lookups);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String cached1(Lookups lookups) {
+        return cached(lookups);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cached4(Lookups lookups) {
+        return cached(lookups);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String cached16(Lookups lookups) {
+        return cached(lookups);
+    }
+}
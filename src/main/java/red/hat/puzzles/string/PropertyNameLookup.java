@@ -0,0 +1,129 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which declared property is an env var setting?
+ * <ul>
+ *     <li>{@code normalizeEach}: converting each declared property into its env var name, till one matches</li>
+ *     <li>{@code hashMap}: a map from the env var names of all declared properties</li>
+ *     <li>{@code trie}: {@link PropertyNameTrie}</li>
+ * </ul>
+ * Half of the env vars looked up doesn't set any of the declared properties.
+ * <p>
+ * The {@code hashMap} benefits from the env var names hash codes to be cached, but it's case sensitive
+ * and it can just retain one of the properties sharing the same env var name.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class PropertyNameLookup {
+
+    private static final int LOOKUPS = 1024;
+    private static final String[] WORDS = {"quarkus", "http", "port", "datasource", "jdbc", "url", "max", "size",
+            "log", "level", "category", "console", "enabled", "timeout", "pool", "min", "user", "password", "host"};
+
+    @Param({"100", "10000", "100000"})
+    int properties;
+
+    String[] declared;
+    String[] envVarNames;
+    int next;
+    Map<String, String> hashMap;
+    PropertyNameTrie trie;
+
+    static String createProperty(SplittableRandom rnd, int id) {
+        final StringBuilder property = new StringBuilder();
+        final int segments = rnd.nextInt(2, 6);
+        for (int s = 0; s < segments; s++) {
+            if (s > 0) {
+                property.append('.');
+            }
+            final int dice = rnd.nextInt(10);
+            if (dice == 0 && s > 0) {
+                // quoted segment
+                property.append('"').append(WORDS[rnd.nextInt(WORDS.length)]).append('.')
+                        .append(WORDS[rnd.nextInt(WORDS.length)]).append('"');
+            } else {
+                property.append(WORDS[rnd.nextInt(WORDS.length)]);
+                if (dice == 1) {
+                    property.append('[').append(rnd.nextInt(4)).append(']');
+                }
+            }
+        }
+        // make them unique
+        return property.append('.').append(WORDS[id % WORDS.length]).append(id).toString();
+    }
+
+    @Setup
+    public void init() {
+        final SplittableRandom rnd = new SplittableRandom(42);
+        declared = new String[properties];
+        hashMap = new HashMap<>(properties * 2);
+        for (int i = 0; i < properties; i++) {
+            declared[i] = createProperty(rnd, i);
+            hashMap.putIfAbsent(ToLowerCaseAndDotted.toUpperCaseAndUnderscored(declared[i]), declared[i]);
+        }
+        trie = new PropertyNameTrie(declared);
+        envVarNames = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            final String property = (i & 1) == 0 ? declared[rnd.nextInt(properties)] : createProperty(rnd, properties + i);
+            envVarNames[i] = ToLowerCaseAndDotted.toUpperCaseAndUnderscored(property);
+        }
+        for (String envVarName : envVarNames) {
+            final String expected = normalizeEach(envVarName);
+            if (!Objects.equals(expected, hashMap.get(envVarName)) || !Objects.equals(expected, trie.get(envVarName))) {
+                throw new AssertionError("Lookup is broken for " + envVarName);
+            }
+        }
+    }
+
+    private String nextEnvVarName() {
+        final int next = this.next;
+        this.next = (next + 1) & (LOOKUPS - 1);
+        return envVarNames[next];
+    }
+
+    private String normalizeEach(String envVarName) {
+        for (String property : declared) {
+            if (ToLowerCaseAndDotted.toUpperCaseAndUnderscored(property).equals(envVarName)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String normalizeEach() {
+        return normalizeEach(nextEnvVarName());
+    }
+
+    @Benchmark
+    public String hashMap() {
+        return hashMap.get(nextEnvVarName());
+    }
+
+    @Benchmark
+    public String trie() {
+        return trie.get(nextEnvVarName());
+    }
+}
@@ -0,0 +1,192 @@
+package red.hat.puzzles.string;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of declared property names by their env var name, see {@link ToLowerCaseAndDotted#toUpperCaseAndUnderscored}:
+ * finding which properties an env var is setting costs {@code O(env var length)} instead of converting each property.
+ * <p>
+ * The trie alphabet is case insensitive and made of digits, letters and {@code '_'}, which stands for any other char:
+ * all the edges are stored in a single open addressing table, keyed by the parent node and the symbol.
+ * <p>
+ * It is immutable once built, hence safe to be shared.
+ */
+public final class PropertyNameTrie {
+
+    private static final int UNDERSCORE = 36;
+    private static final int SYMBOLS = UNDERSCORE + 1;
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final String[] properties;
+    // the first property of each node, if any
+    private int[] terminals;
+    // the next property with the same env var name, if any
+    private final int[] sameEnvVarName;
+    private int nodes;
+    // edges: (parent * SYMBOLS + symbol + 1) -> child
+    private long[] edgeKeys;
+    private int[] edgeChildren;
+    private int edgeMask;
+    private int edges;
+
+    public PropertyNameTrie(String... properties) {
+        this.properties = properties.clone();
+        this.sameEnvVarName = new int[properties.length];
+        this.terminals = new int[16];
+        Arrays.fill(terminals, NONE);
+        this.nodes = 1;
+        this.edgeKeys = new long[64];
+        this.edgeChildren = new int[64];
+        this.edgeMask = 63;
+        for (int p = 0; p < properties.length; p++) {
+            add(p);
+        }
+    }
+
+    static int symbolOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        // it won't turn non-ASCII into ASCII
+        final int lowerCased = c | 0x20;
+        if (lowerCased >= 'a' && lowerCased <= 'z') {
+            return 10 + lowerCased - 'a';
+        }
+        return UNDERSCORE;
+    }
+
+    /**
+     * Fibonacci hashing: the top {@code log2(capacity)} bits of the product are the best mixed ones, for any capacity.
+     */
+    private static int slotOf(long key, int mask) {
+        // mask + 1 is a power of 2: it has 64 - log2(capacity) leading zeros, as a long
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> Long.numberOfLeadingZeros(mask));
+    }
+
+    private int child(int node, int symbol) {
+        final long key = (long) node * SYMBOLS + symbol + 1;
+        final long[] edgeKeys = this.edgeKeys;
+        final int mask = edgeMask;
+        for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+            final long edgeKey = edgeKeys[slot];
+            if (edgeKey == key) {
+                return edgeChildren[slot];
+            }
+            if (edgeKey == 0) {
+                return NONE;
+            }
+        }
+    }
+
+    private int addChild(int node, int symbol) {
+        final int existing = child(node, symbol);
+        if (existing != NONE) {
+            return existing;
+        }
+        if ((edges + 1) * 2 > edgeKeys.length) {
+            resizeEdges();
+        }
+        final int child = nodes++;
+        if (child == terminals.length) {
+            final int oldLength = terminals.length;
+            terminals = Arrays.copyOf(terminals, oldLength * 2);
+            Arrays.fill(terminals, oldLength, terminals.length, NONE);
+        }
+        putEdge(edgeKeys, edgeChildren, edgeMask, (long) node * SYMBOLS + symbol + 1, child);
+        edges++;
+        return child;
+    }
+
+    private static void putEdge(long[] edgeKeys, int[] edgeChildren, int mask, long key, int child) {
+        int slot = slotOf(key, mask);
+        while (edgeKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeChildren[slot] = child;
+    }
+
+    private void resizeEdges() {
+        final long[] oldKeys = edgeKeys;
+        final int[] oldChildren = edgeChildren;
+        final long[] newKeys = new long[oldKeys.length * 2];
+        final int[] newChildren = new int[oldKeys.length * 2];
+        final int newMask = newKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                putEdge(newKeys, newChildren, newMask, oldKeys[i], oldChildren[i]);
+            }
+        }
+        edgeKeys = newKeys;
+        edgeChildren = newChildren;
+        edgeMask = newMask;
+    }
+
+    private void add(int property) {
+        final String name = properties[property];
+        final int length = name.length();
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = addChild(node, symbolOf(name.charAt(i)));
+        }
+        if (length > 0 && name.charAt(length - 1) == '"') {
+            // a trailing quoted segment ends with a double _
+            node = addChild(node, UNDERSCORE);
+        }
+        // keep the declaration order
+        final int first = terminals[node];
+        sameEnvVarName[property] = NONE;
+        if (first == NONE) {
+            terminals[node] = property;
+        } else {
+            int last = first;
+            while (sameEnvVarName[last] != NONE) {
+                last = sameEnvVarName[last];
+            }
+            sameEnvVarName[last] = property;
+        }
+    }
+
+    private int find(CharSequence envVarName) {
+        final int length = envVarName.length();
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = child(node, symbolOf(envVarName.charAt(i)));
+            if (node == NONE) {
+                return NONE;
+            }
+        }
+        return terminals[node];
+    }
+
+    /**
+     * @return the first declared property set by {@code envVarName} or {@code null} if none
+     */
+    public String get(CharSequence envVarName) {
+        final int property = find(envVarName);
+        return property == NONE ? null : properties[property];
+    }
+
+    /**
+     * @return all the declared properties set by {@code envVarName}, in declaration order
+     */
+    public List<String> getAll(CharSequence envVarName) {
+        int property = find(envVarName);
+        if (property == NONE) {
+            return List.of();
+        }
+        final List<String> matches = new ArrayList<>(1);
+        do {
+            matches.add(properties[property]);
+            property = sameEnvVarName[property];
+        } while (property != NONE);
+        return matches;
+    }
+
+    public int size() {
+        return properties.length;
+    }
+}
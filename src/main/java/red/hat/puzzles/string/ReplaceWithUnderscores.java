@@ -20,7 +20,7 @@ import static org.openjdk.jmh.annotations.Mode.AverageTime;
 
 @State(Scope.Benchmark)
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
-@Fork(2)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
 @Warmup(iterations = 5, time = 1)
 @Measurement(iterations = 5, time = 1)
 @BenchmarkMode(AverageTime)
@@ -104,7 +104,7 @@ public class ReplaceWithUnderscores {
     @Param({"100", "10000"})
     private int samples;
 
-    @Param({"33"})
+    @Param({"33", "256", "4096"})
     private int size;
 
     @Param({"10"})
@@ -117,6 +117,7 @@ public class ReplaceWithUnderscores {
     private int nextInput;
     private StringBuilder builder;
     private StringUtilTable.ResizableByteArray asciiByteArray;
+    private char[] chunk;
 
     @Setup
     public void init() {
@@ -124,6 +125,7 @@ public class ReplaceWithUnderscores {
         nextInput = 0;
         builder = new StringBuilder(size + 1);
         asciiByteArray = new StringUtilTable.ResizableByteArray(size + 1);
+        chunk = new char[StringUtilTable.Vectorized.CHUNK_SIZE];
     }
 
     private String nextInput() {
@@ -162,4 +164,20 @@ public class ReplaceWithUnderscores {
         var builder = this.asciiByteArray;
         return StringUtilTable.replaceNonAlphanumericByUnderscores(value, builder);
     }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    @Benchmark
+    public String replaceWithUnderscoresSwar() {
+        String value = nextInput();
+        var builder = this.asciiByteArray;
+        return StringUtilTable.replaceNonAlphanumericByUnderscoresSwar(value, builder, chunk);
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    @Benchmark
+    public String replaceWithUnderscoresVectorized() {
+        String value = nextInput();
+        var builder = this.asciiByteArray;
+        return StringUtilTable.Vectorized.replaceNonAlphanumericByUnderscores(value, builder, chunk);
+    }
 }
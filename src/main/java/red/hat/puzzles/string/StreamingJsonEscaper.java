@@ -0,0 +1,106 @@
+package red.hat.puzzles.string;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * JSON escaping of strings of any length into a fixed size, reusable, chunk of bytes:
+ * whenever the chunk cannot fit the worst case escaping of what's left, it is flushed into the sink
+ * and escaping resumes right where it was left.
+ * <p>
+ * Differently from {@link CheckEscapingString#escapeSwar(String, byte[])}, it doesn't need an output buffer
+ * {@link CheckEscapingString#maxEscapedLength 6 times} the input: the peak memory is the chunk, regardless the input.
+ * <p>
+ * Escaped strings are appended to the chunk and just {@link #flush(OutputStream) flushing} guarantees they're
+ * fully written into the sink; it's meant to be used from a single thread.
+ */
+public final class StreamingJsonEscaper {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    // the SWAR loop store 8 bytes at time: slices smaller than this are not worth it
+    private static final int MIN_SLICE = 8;
+    private static final int MIN_CHUNK_SIZE = CheckEscapingString.maxEscapedLength(MIN_SLICE);
+
+    private final byte[] chunk;
+    private final ByteBuffer chunkBuffer;
+    private int position;
+
+    public StreamingJsonEscaper() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamingJsonEscaper(int chunkSize) {
+        if (chunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be at least " + MIN_CHUNK_SIZE);
+        }
+        chunk = new byte[chunkSize];
+        chunkBuffer = ByteBuffer.wrap(chunk);
+    }
+
+    /**
+     * Number of escaped bytes not yet flushed.
+     */
+    public int pending() {
+        return position;
+    }
+
+    /**
+     * Escapes as much of {@code input} as the chunk can fit.
+     *
+     * @return the index of the first char of {@code input} not yet escaped
+     */
+    private int escapeSlices(String input, int from) {
+        final int length = input.length();
+        final byte[] chunk = this.chunk;
+        int position = this.position;
+        int i = from;
+        // each slice is sized for the worst case, but ASCII mostly takes 1 byte per char: keep on
+        // slicing what's left of the chunk, till it can fit a meaningful amount of chars
+        while (i < length) {
+            final int sliceLength = Math.min(length - i, (chunk.length - position) / CheckEscapingString.maxEscapedLength(1));
+            if (sliceLength < MIN_SLICE && sliceLength < length - i) {
+                break;
+            }
+            position = CheckEscapingString.escapeSwar(input, i, i + sliceLength, chunk, position);
+            i += sliceLength;
+        }
+        this.position = position;
+        return i;
+    }
+
+    public void escape(String input, OutputStream out) throws IOException {
+        final int length = input.length();
+        int i = 0;
+        while ((i = escapeSlices(input, i)) < length) {
+            flush(out);
+        }
+    }
+
+    public void escape(String input, WritableByteChannel out) throws IOException {
+        final int length = input.length();
+        int i = 0;
+        while ((i = escapeSlices(input, i)) < length) {
+            flush(out);
+        }
+    }
+
+    public void flush(OutputStream out) throws IOException {
+        if (position > 0) {
+            out.write(chunk, 0, position);
+            position = 0;
+        }
+    }
+
+    public void flush(WritableByteChannel out) throws IOException {
+        if (position > 0) {
+            final ByteBuffer chunkBuffer = this.chunkBuffer;
+            chunkBuffer.clear().limit(position);
+            while (chunkBuffer.hasRemaining()) {
+                out.write(chunkBuffer);
+            }
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package red.hat.puzzles.string;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escaping multi-MB strings into a sink: {@link StreamingJsonEscaper} with a small reusable chunk vs
+ * allocating (or keeping around) a whole output buffer sized for the worst case.
+ * <p>
+ * Run with {@code -prof gc} to compare the bytes allocated per op: {@code wholeBuffer} allocates 6 times the input,
+ * while {@code wholeBufferReused} retains it for good, which is the peak memory the streaming one saves.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 400, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+public class StreamingJsonEscaping {
+
+    /**
+     * A sink which just drops what's written, without copying it like {@link java.nio.channels.Channels#newChannel}.
+     */
+    private static final class NullChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Param({"65536", "1048576", "8388608"})
+    int size;
+
+    @Param({"0", "2"})
+    int escapePercent;
+
+    @Param({"8192"})
+    int chunkSize;
+
+    String input;
+    byte[] output;
+    StreamingJsonEscaper escaper;
+    OutputStream outputStream;
+    WritableByteChannel channel;
+
+    @Setup
+    public void init() throws IOException {
+        input = JsonStringEscaping.createPayload(new SplittableRandom(42), size, escapePercent);
+        output = new byte[CheckEscapingString.maxEscapedLength(size)];
+        escaper = new StreamingJsonEscaper(chunkSize);
+        outputStream = OutputStream.nullOutputStream();
+        channel = new NullChannel();
+        final byte[] expected = Arrays.copyOf(output, CheckEscapingString.escapeScalar(input, output));
+        final ByteArrayOutputStream streamed = new ByteArrayOutputStream(expected.length);
+        escaper.escape(input, streamed);
+        escaper.flush(streamed);
+        if (!Arrays.equals(expected, streamed.toByteArray())) {
+            throw new AssertionError("Streaming escaping is broken");
+        }
+    }
+
+    @Benchmark
+    public byte[] wholeBuffer() throws IOException {
+        final byte[] output = new byte[CheckEscapingString.maxEscapedLength(input.length())];
+        outputStream.write(output, 0, CheckEscapingString.escapeSwar(input, output));
+        return output;
+    }
+
+    @Benchmark
+    public void wholeBufferReused() throws IOException {
+        final byte[] output = this.output;
+        outputStream.write(output, 0, CheckEscapingString.escapeSwar(input, output));
+    }
+
+    @Benchmark
+    public void streamingOutputStream() throws IOException {
+        final StreamingJsonEscaper escaper = this.escaper;
+        escaper.escape(input, outputStream);
+        escaper.flush(outputStream);
+    }
+
+    @Benchmark
+    public void streamingChannel() throws IOException {
+        final StreamingJsonEscaper escaper = this.escaper;
+        escaper.escape(input, channel);
+        escaper.flush(channel);
+    }
+}
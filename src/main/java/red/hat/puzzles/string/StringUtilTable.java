@@ -1,7 +1,23 @@
 package red.hat.puzzles.string;
 
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class StringUtilTable {
 
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
     public static final class ResizableByteArray {
 
         private byte[] array;
@@ -22,6 +38,81 @@ public class StringUtilTable {
         }
     }
 
+    /**
+     * The replacements of a batch of names, laid out one after the other in a single slab:
+     * the {@code i}-th one is in {@code [offsets[i], offsets[i + 1])}.
+     * <p>
+     * Strings are created on demand, and cached: it is backed by the {@link ResizableByteArray} used to create it,
+     * hence it's valid till that is reused.
+     */
+    public static final class Replacements {
+
+        private final byte[] slab;
+        private final int[] offsets;
+        private final String[] strings;
+
+        private Replacements(byte[] slab, int[] offsets) {
+            this.slab = slab;
+            this.offsets = offsets;
+            this.strings = new String[offsets.length - 1];
+        }
+
+        public int size() {
+            return strings.length;
+        }
+
+        public int length(int index) {
+            return offsets[index + 1] - offsets[index];
+        }
+
+        public byte byteAt(int index, int i) {
+            return slab[offsets[index] + i];
+        }
+
+        public String get(int index) {
+            String replacement = strings[index];
+            if (replacement == null) {
+                final int start = offsets[index];
+                replacement = new String(slab, 0, start, offsets[index + 1] - start);
+                strings[index] = replacement;
+            }
+            return replacement;
+        }
+    }
+
+    // below this number of names, a parallel batch is not split further
+    private static final int PARALLEL_BATCH_THRESHOLD = 4096;
+
+    private static final class ReplaceBatchAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] names;
+        private final int from;
+        private final int to;
+        private final byte[] slab;
+        private final int[] offsets;
+
+        private ReplaceBatchAction(String[] names, int from, int to, byte[] slab, int[] offsets) {
+            this.names = names;
+            this.from = from;
+            this.to = to;
+            this.slab = slab;
+            this.offsets = offsets;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_BATCH_THRESHOLD) {
+                replaceBatch(names, from, to, slab, offsets);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ReplaceBatchAction(names, from, middle, slab, offsets),
+                    new ReplaceBatchAction(names, middle, to, slab, offsets));
+        }
+    }
+
     // this is accounting for Latin1 chars only
     private static final byte[] NON_ALPHANUMERIC_UNDERSCORE_REPLACEMENTS = new byte[256];
 
@@ -92,6 +183,128 @@ public class StringUtilTable {
         return replaceNonAlphanumericByteUnderscoresWithByteArray(name, length, sb.ensureCapacity(length + 1));
     }
 
+    /**
+     * Replaces all {@code names} in a single slab, which size is known upfront: a replacement is as long as its name,
+     * but for the trailing {@code '"'} rule.
+     */
+    public static Replacements replaceNonAlphanumericByUnderscores(final String[] names, final ResizableByteArray slab) {
+        final int[] offsets = replacementOffsets(names);
+        final byte[] bytes = slab.ensureCapacity(offsets[names.length]);
+        replaceBatch(names, 0, names.length, bytes, offsets);
+        return new Replacements(bytes, offsets);
+    }
+
+    /**
+     * Same as {@link #replaceNonAlphanumericByUnderscores(String[], ResizableByteArray)}, but each worker of
+     * {@code pool} replaces a different range of names, in a different region of the slab.
+     */
+    public static Replacements replaceNonAlphanumericByUnderscores(final String[] names, final ResizableByteArray slab,
+                                                                   final ForkJoinPool pool) {
+        final int[] offsets = replacementOffsets(names);
+        final byte[] bytes = slab.ensureCapacity(offsets[names.length]);
+        pool.invoke(new ReplaceBatchAction(names, 0, names.length, bytes, offsets));
+        return new Replacements(bytes, offsets);
+    }
+
+    private static int[] replacementOffsets(String[] names) {
+        final int[] offsets = new int[names.length + 1];
+        int offset = 0;
+        for (int i = 0; i < names.length; i++) {
+            final String name = names[i];
+            final int length = name.length();
+            offset = Math.addExact(offset, length);
+            if (length > 0 && name.charAt(length - 1) == '"') {
+                offset = Math.addExact(offset, 1);
+            }
+            offsets[i + 1] = offset;
+        }
+        return offsets;
+    }
+
+    private static void replaceBatch(String[] names, int from, int to, byte[] slab, int[] offsets) {
+        for (int n = from; n < to; n++) {
+            final String name = names[n];
+            final int length = name.length();
+            final int offset = offsets[n];
+            for (int i = 0; i < length; i++) {
+                slab[offset + i] = rawReplacementOf(name.charAt(i));
+            }
+            if (offsets[n + 1] - offset > length) {
+                slab[offset + length] = '_';
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #replaceNonAlphanumericByUnderscores(String, ResizableByteArray)}, but classifying 8 chars at time.
+     *
+     * @param chunk a scratch buffer of at least 8 chars, to copy the String content in bulk
+     */
+    public static String replaceNonAlphanumericByUnderscoresSwar(final String name, final ResizableByteArray sb, final char[] chunk) {
+        if (chunk.length < 8) {
+            throw new IllegalArgumentException("chunk must be at least 8 chars");
+        }
+        final int length = name.length();
+        if (length == 0) {
+            return name;
+        }
+        final byte[] ascii = sb.ensureCapacity(length + 1);
+        int i = 0;
+        while (i + 8 <= length) {
+            // packing chars from an array is way cheaper than through charAt
+            final int chunkLength = Math.min(chunk.length, length - i) & ~7;
+            name.getChars(i, i + chunkLength, chunk, 0);
+            for (int c = 0; c < chunkLength; c += 8, i += 8) {
+                final char c0 = chunk[c];
+                final char c1 = chunk[c + 1];
+                final char c2 = chunk[c + 2];
+                final char c3 = chunk[c + 3];
+                final char c4 = chunk[c + 4];
+                final char c5 = chunk[c + 5];
+                final char c6 = chunk[c + 6];
+                final char c7 = chunk[c + 7];
+                if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) > 0xFF) {
+                    // non-Latin1 is never alphanumeric, but the rest of the batch can be
+                    for (int j = 0; j < 8; j++) {
+                        ascii[i + j] = rawReplacementOf(chunk[c + j]);
+                    }
+                    continue;
+                }
+                // first char in the least significant byte, regardless the native order
+                final long latin1Values = c0 | c1 << 8 | c2 << 16 | ((long) c3) << 24 |
+                        ((long) c4) << 32 | ((long) c5) << 40 | ((long) c6) << 48 | ((long) c7) << 56;
+                final long replaced = replaceLatin1NonAlphanumeric(latin1Values);
+                LONG.set(ascii, i, LITTLE_ENDIAN ? replaced : Long.reverseBytes(replaced));
+            }
+        }
+        for (; i < length; i++) {
+            ascii[i] = rawReplacementOf(name.charAt(i));
+        }
+        if (name.charAt(length - 1) == '"') {
+            ascii[length] = '_';
+            return new String(ascii, 0, 0, length + 1);
+        } else {
+            return new String(ascii, 0, 0, length);
+        }
+    }
+
+    /**
+     * The range checks work on the lowest 7 bits of each byte: adding {@code 0x80 - lo} sets the high bit iff it's
+     * {@code >= lo} and adding {@code 0x7F - hi} iff it's {@code > hi}, without carrying into the next byte.<br>
+     * Latin1 bytes with the high bit set are never alphanumeric.
+     */
+    private static long replaceLatin1NonAlphanumeric(long latin1Values) {
+        final long asciiValues = latin1Values & 0x7F7F7F7F7F7F7F7FL;
+        final long digits = (asciiValues + 0x5050505050505050L) & ~(asciiValues + 0x4646464646464646L);
+        // setting 0x20 lower cases the letters, without turning anything else into one
+        final long lowerCased = asciiValues | 0x2020202020202020L;
+        final long letters = (lowerCased + 0x1F1F1F1F1F1F1F1FL) & ~(lowerCased + 0x0505050505050505L);
+        final long alphanumeric = ((digits | letters) & ~latin1Values & 0x8080808080808080L) >>> 7;
+        // 0xFF for each alphanumeric byte
+        final long keep = (alphanumeric << 8) - alphanumeric;
+        return (latin1Values & keep) | (0x5F5F5F5F5F5F5F5FL & ~keep);
+    }
+
     private static String replaceNonAlphanumericByteUnderscoresWithByteArray(String name, int length, byte[] ascii) {
         char c = 0;
         for (int i = 0; i < length; i++) {
@@ -106,4 +319,58 @@ public class StringUtilTable {
         }
     }
 
+    /**
+     * Using the Vector API requires {@code --add-modules jdk.incubator.vector}: this is in a separate class to not
+     * fail the initialization of {@link StringUtilTable} without it.
+     */
+    public static final class Vectorized {
+
+        private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+        private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(CHARS.vectorBitSize() / 2));
+        // chars copied from the String at once
+        public static final int CHUNK_SIZE = CHARS.length() * 64;
+
+        private Vectorized() {
+        }
+
+        /**
+         * @param chunk a scratch buffer of {@link #CHUNK_SIZE} chars
+         * @see #replaceNonAlphanumericByUnderscores(String, ResizableByteArray)
+         */
+        public static String replaceNonAlphanumericByUnderscores(final String name, final ResizableByteArray sb, final char[] chunk) {
+            final int length = name.length();
+            if (length == 0) {
+                return name;
+            }
+            final byte[] ascii = sb.ensureCapacity(length + 1);
+            final int lanes = CHARS.length();
+            int i = 0;
+            while (i + lanes <= length) {
+                // we cannot access the String content directly: copy it in bulk
+                final int chunkLength = Math.min(chunk.length, length - i) / lanes * lanes;
+                name.getChars(i, i + chunkLength, chunk, 0);
+                for (int c = 0; c < chunkLength; c += lanes, i += lanes) {
+                    final ShortVector chars = ShortVector.fromCharArray(CHARS, chunk, c);
+                    final ShortVector lowerCased = chars.or((short) 0x20);
+                    final VectorMask<Short> alphanumeric = chars.compare(VectorOperators.UNSIGNED_GE, (short) '0')
+                            .and(chars.compare(VectorOperators.UNSIGNED_LE, (short) '9'))
+                            .or(lowerCased.compare(VectorOperators.UNSIGNED_GE, (short) 'a')
+                                    .and(lowerCased.compare(VectorOperators.UNSIGNED_LE, (short) 'z')));
+                    // what's left is ASCII: narrowing it is safe
+                    final ShortVector replaced = chars.blend((short) '_', alphanumeric.not());
+                    ((ByteVector) replaced.convertShape(VectorOperators.S2B, BYTES, 0)).intoArray(ascii, i);
+                }
+            }
+            for (; i < length; i++) {
+                ascii[i] = rawReplacementOf(name.charAt(i));
+            }
+            if (name.charAt(length - 1) == '"') {
+                ascii[length] = '_';
+                return new String(ascii, 0, 0, length + 1);
+            } else {
+                return new String(ascii, 0, 0, length);
+            }
+        }
+    }
+
 }
@@ -2,6 +2,7 @@ package red.hat.puzzles.string;
 
 import org.openjdk.jmh.annotations.*;
 
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 @State(Scope.Benchmark)
@@ -12,13 +13,51 @@ import java.util.concurrent.TimeUnit;
 @Fork(2)
 public class ToLowerCaseAndDotted {
 
+    // what the consistency check runs on, besides the params
+    private static final String[] NAMES = {
+            "", "_", "A", "MY_ENV_VARIABLE_FOO", "MY_ENV_LIST_12__FOO", "MY_ENV__QUOTED_NAME__FOO", "MY_ENV__QUOTED__",
+            "_DEV_MY_FOO", "MY_1A", "MY_12", "MY_12_FOO", "MY_LIST_0_1__A", "MY__A_1__"
+    };
+
+    @Param({"MY_ENV_VARIABLE_FOO", "MY_ENV_LIST_12__FOO", "MY_ENV__QUOTED_NAME__FOO"})
     public String name;
     public StringBuilder sb;
+    public byte[] sink;
+    public int sinkLength;
+    public DottedNameTable<Object> table;
 
     @Setup
     public void setUp() {
-        name = "MY_ENV_VARIABLE_FOO";
         sb = new StringBuilder(name.length());
+        sink = new byte[name.length()];
+        sinkLength = lengthOfLowerCaseAndDotted(name);
+        final String[] properties = new String[NAMES.length];
+        final Object[] values = new Object[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            final String expected = toLowerCaseAndDottedBytes(NAMES[i]);
+            final byte[] bytes = new byte[lengthOfLowerCaseAndDotted(NAMES[i]) + 1];
+            // not at the start of the sink, to check the offset too
+            final int hash = toLowerCaseAndDotted(NAMES[i], bytes, 1);
+            final String sinkResult = new String(bytes, 0, 1, bytes.length - 1);
+            if (!expected.equals(sinkResult) || hash != sinkResult.hashCode() ||
+                    !expected.equals(toLowerCaseAndDottedBuilderAsBytes(NAMES[i], new StringBuilder()))) {
+                throw new AssertionError(NAMES[i] + " is converted to " + expected + " and " + sinkResult);
+            }
+            properties[i] = expected;
+            values[i] = NAMES[i];
+        }
+        table = new DottedNameTable<>(properties, values);
+        for (String envVarName : NAMES) {
+            final byte[] bytes = new byte[lengthOfLowerCaseAndDotted(envVarName)];
+            final int hash = toLowerCaseAndDotted(envVarName, bytes, 0);
+            if (table.get(bytes, 0, bytes.length, hash) != envVarName ||
+                    table.get(toLowerCaseAndDottedBytes(envVarName)) != envVarName) {
+                throw new AssertionError("Lookup is broken for " + envVarName);
+            }
+        }
+        if (table.get("my.env.missing".getBytes(), 0, 14, "my.env.missing".hashCode()) != null) {
+            throw new AssertionError("Lookup is broken for a missing name");
+        }
     }
 
     @Benchmark
@@ -40,6 +79,28 @@ public class ToLowerCaseAndDotted {
         return toLowerCaseAndDottedBytes(name);
     }
 
+    @Benchmark
+    public int toLowerCaseAndDottedBytesNoReuseHash() {
+        // what's needed to lookup a hash map
+        return toLowerCaseAndDottedBytes(name).hashCode();
+    }
+
+    @Benchmark
+    public int toLowerCaseAndDottedSinkReuse() {
+        return toLowerCaseAndDotted(name, sink, 0);
+    }
+
+    @Benchmark
+    public Object toLowerCaseAndDottedBytesLookup() {
+        return table.get(toLowerCaseAndDottedBytes(name));
+    }
+
+    @Benchmark
+    public Object toLowerCaseAndDottedSinkLookup() {
+        final byte[] sink = this.sink;
+        final int hash = toLowerCaseAndDotted(name, sink, 0);
+        return table.get(sink, 0, sinkLength, hash);
+    }
 
     public static String toLowerCaseAndDotted(final String name) {
         return toLowerCaseAndDotted(name, new StringBuilder(name.length()));
@@ -105,6 +166,37 @@ public class ToLowerCaseAndDotted {
         return sb.toString();
     }
 
+    /**
+     * The reverse of {@link #toLowerCaseAndDotted(String)} ie {@code my.env."quoted.name".foo} to
+     * {@code MY_ENV__QUOTED_NAME__FOO}: it is lossy, because any non-alphanumeric char is replaced by {@code '_'},
+     * as {@link StringUtilTable#replaceNonAlphanumericByUnderscores(String)} does.
+     */
+    public static String toUpperCaseAndUnderscored(final String property) {
+        final int length = property.length();
+        if (length == 0) {
+            return property;
+        }
+        // size it accounting for worst case scenario
+        final byte[] result = new byte[length + 1];
+        char c = 0;
+        for (int i = 0; i < length; i++) {
+            c = property.charAt(i);
+            if (!StringUtilTable.isAsciiLetterOrDigit(c)) {
+                result[i] = '_';
+            } else if (c >= 'a') {
+                result[i] = (byte) (c - ('a' - 'A'));
+            } else {
+                result[i] = (byte) c;
+            }
+        }
+        if (c == '"') {
+            // a trailing quoted segment ends with a double _
+            result[length] = '_';
+            return new String(result, 0, 0, length + 1);
+        }
+        return new String(result, 0, 0, length);
+    }
+
     public static boolean isNumeric(CharSequence digits) {
         return isNumeric(digits, 0, digits.length());
     }
@@ -171,12 +263,16 @@ public class ToLowerCaseAndDotted {
                                 result.setCharAt(j, ']');
                                 i = j;
                                 break;
-                            } else { // not an index
+                            } else { // not an index: what's after the digits is just a char
                                 result.setCharAt(i, '.');
-                                i = j;
+                                i = j - 1;
                                 break;
                             }
                         }
+                        if (j == length) { // not an index, till the end
+                            result.setCharAt(i, '.');
+                            i = j;
+                        }
 
                     } else if (name.charAt(next) == '_') { // double _ start quote
                         result.setCharAt(i, '.');
@@ -197,6 +293,113 @@ public class ToLowerCaseAndDotted {
         return result.toString();
     }
 
+    /**
+     * @return the length of the {@link #toLowerCaseAndDottedBytes(String)} result, without computing it
+     */
+    public static int lengthOfLowerCaseAndDotted(final String name) {
+        final int length = name.length();
+        if (length > 1 && name.charAt(length - 1) == '_' && name.charAt(length - 2) == '_') { // last quoted segment
+            return length - 1;
+        }
+        return length;
+    }
+
+    /**
+     * Same as {@link #toLowerCaseAndDottedBytes(String)}, but it writes the (ASCII) result in {@code sink} from
+     * {@code offset}, for {@link #lengthOfLowerCaseAndDotted(String)} bytes, and computes its {@link String#hashCode()}
+     * along the way: it can be used to lookup a {@link DottedNameTable} without creating any String.
+     *
+     * @return the hash code of the result
+     * @throws IndexOutOfBoundsException if the sink cannot fit the result
+     */
+    public static int toLowerCaseAndDotted(final String name, final byte[] sink, final int offset) {
+        final int length = lengthOfLowerCaseAndDotted(name);
+        Objects.checkFromIndexSize(offset, length, sink.length);
+
+        if (length == 0) {
+            return 0;
+        }
+
+        final byte[] result = sink;
+        final int base = offset;
+
+        int hash = 0;
+        int i = 0;
+        if (name.charAt(0) == '_') { // starting _ is a profile
+            result[base] = (byte) '%';
+            hash = '%';
+            i++;
+        }
+
+        boolean quotesOpen = false;
+        for (; i < length; i++) {
+            char c = name.charAt(i);
+            final byte b;
+            if ('_' == c) {
+                int next = i + 1;
+                if (quotesOpen) {
+                    if (next == length) {
+                        b = '"'; // ending quotes
+                    } else if (name.charAt(next) == '_') { // double _ end quote
+                        result[base + i] = (byte) '"';
+                        result[base + next] = (byte) '.';
+                        hash = (31 * hash + '"') * 31 + '.';
+                        i++;
+                        quotesOpen = false;
+                        continue;
+                    } else {
+                        b = '.';
+                    }
+                } else if (next < length) {
+                    char d = name.charAt(next);
+                    if (Character.isDigit(d)) { // maybe index
+                        // digits are written before knowing what this _ is: their hash is combined later
+                        int digitsHash = 0;
+                        int digitsPower = 1;
+                        int j = next;
+                        for (; j < length; j++) {
+                            d = name.charAt(j);
+                            if (!Character.isDigit(d)) {
+                                break;
+                            }
+                            result[base + j] = (byte) d;
+                            digitsHash = 31 * digitsHash + (d & 0xFF);
+                            digitsPower *= 31;
+                        }
+                        if (j < length && '_' == d) { // ending index
+                            result[base + i] = (byte) '[';
+                            result[base + j] = (byte) ']';
+                            hash = ((31 * hash + '[') * digitsPower + digitsHash) * 31 + ']';
+                            i = j;
+                        } else { // not an index: what's after the digits, if any, is just a char
+                            result[base + i] = (byte) '.';
+                            hash = (31 * hash + '.') * digitsPower + digitsHash;
+                            i = j - 1;
+                        }
+                        continue;
+                    } else if (d == '_') { // double _ start quote
+                        result[base + i] = (byte) '.';
+                        result[base + next] = (byte) '"';
+                        hash = (31 * hash + '.') * 31 + '"';
+                        i++;
+                        quotesOpen = true;
+                        continue;
+                    } else {
+                        b = '.';
+                    }
+                } else {
+                    b = '.';
+                }
+            } else {
+                b = (byte) Character.toLowerCase(c);
+            }
+            result[base + i] = b;
+            hash = 31 * hash + (b & 0xFF);
+        }
+
+        return hash;
+    }
+
     public static String toLowerCaseAndDottedBytes(final String name) {
         int length = name.length();
 
@@ -246,12 +449,16 @@ public class ToLowerCaseAndDotted {
                                 result[j] = ']';
                                 i = j;
                                 break;
-                            } else { // not an index
+                            } else { // not an index: what's after the digits is just a char
                                 result[i] = '.';
-                                i = j;
+                                i = j - 1;
                                 break;
                             }
                         }
+                        if (j == length) { // not an index, till the end
+                            result[i] = '.';
+                            i = j;
+                        }
 
                     } else if (name.charAt(next) == '_') { // double _ start quote
                         result[i] = '.';